@@ -0,0 +1,64 @@
+package org.notlocalhost.superlistview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The load more decision made by the list on every onScroll
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadMorePolicyBenchmark {
+
+    private static final int FLOOR   = 10;
+    private static final int VISIBLE = 12;
+    private static final int TOTAL   = 5000;
+
+    private LoadMorePolicy mPolicy;
+    private long           mNow;
+    private int            mFirst;
+
+    @Setup
+    public void setUp() {
+        mPolicy = new LoadMorePolicy();
+        mPolicy.onLoadStarted(0);
+        mPolicy.onLoadFinished(400);
+        mNow = 1000;
+        mFirst = 0;
+    }
+
+    /**
+     * One onScroll of a fling: a frame later, a row or so further
+     */
+    @Benchmark
+    public boolean onScroll() {
+        mNow += 16;
+        mFirst = (mFirst + 1) % (TOTAL - VISIBLE);
+        mPolicy.onScroll(mNow, mFirst);
+        return mPolicy.shouldLoadMore(FLOOR, mFirst, VISIBLE, TOTAL);
+    }
+
+    /**
+     * onScroll called again for the same first row, as it is for every pixel scrolled
+     */
+    @Benchmark
+    public boolean onScrollSameRow() {
+        mNow += 16;
+        mPolicy.onScroll(mNow, mFirst);
+        return mPolicy.shouldLoadMore(FLOOR, mFirst, VISIBLE, TOTAL);
+    }
+}
@@ -0,0 +1,79 @@
+package org.notlocalhost.superlistview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pending dismissals of the swipe to dismiss listener: queued from performDismiss in any order,
+ * then read on every collapse frame to offset the rows below them
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PendingDismissQueueBenchmark {
+
+    private static final int VISIBLE_ROWS = 12;
+
+    @Param({"1", "4", "16"})
+    public int dismissed;
+
+    private PendingDismissQueue<Object> mQueue;
+    private int[]                       mPositions;
+    private final Object                mView = new Object();
+
+    @Setup
+    public void setUp() {
+        mQueue = new PendingDismissQueue<Object>();
+        mPositions = new int[dismissed];
+        Random random = new Random(42);
+        for (int i = 0; i < dismissed; i++) {
+            mPositions[i] = random.nextInt(VISIBLE_ROWS * 2);
+        }
+        fill();
+    }
+
+    private void fill() {
+        mQueue.clear();
+        for (int i = 0; i < dismissed; i++) {
+            mQueue.add(mPositions[i], mView, 96, i);
+        }
+    }
+
+    /**
+     * Queue the dismissals in swipe order, the queue keeps them sorted
+     */
+    @Benchmark
+    public int add() {
+        fill();
+        return mQueue.size();
+    }
+
+    /**
+     * What a collapse frame reads: the collapsed height above every visible row
+     */
+    @Benchmark
+    public void collapseFrame(Blackhole blackhole) {
+        for (int i = 0; i < mQueue.size(); i++) {
+            mQueue.setCollapsed(i, 48);
+        }
+        for (int row = 0; row < VISIBLE_ROWS; row++) {
+            blackhole.consume(mQueue.getCollapsedAbove(row));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.notlocalhost.superlistview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The swipe decisions of the swipe to dismiss listeners' onTouch, over a spread of gestures
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwipeDecisionBenchmark {
+
+    private static final int GESTURES     = 1024;
+    private static final int SLOP         = 16;
+    private static final int VIEW_WIDTH   = 1080;
+    private static final int MIN_VELOCITY = 800;
+    private static final int MAX_VELOCITY = 24000;
+
+    private final float[] mDeltaX    = new float[GESTURES];
+    private final float[] mDeltaY    = new float[GESTURES];
+    private final float[] mVelocityX = new float[GESTURES];
+    private final float[] mVelocityY = new float[GESTURES];
+    private int           mIndex;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < GESTURES; i++) {
+            mDeltaX[i] = (random.nextFloat() - 0.5f) * VIEW_WIDTH * 1.5f;
+            mDeltaY[i] = (random.nextFloat() - 0.5f) * 200;
+            mVelocityX[i] = (random.nextFloat() - 0.5f) * 2 * MAX_VELOCITY;
+            mVelocityY[i] = (random.nextFloat() - 0.5f) * 2 * MAX_VELOCITY;
+        }
+    }
+
+    /**
+     * ACTION_MOVE: is it a swipe, and how transparent is the row
+     */
+    @Benchmark
+    public float move() {
+        int i = mIndex++ & (GESTURES - 1);
+        boolean swipe = SwipeDecision.isSwipe(mDeltaX[i], mDeltaY[i], SLOP);
+        return swipe ? SwipeDecision.swipeAlpha(mDeltaX[i], VIEW_WIDTH) : 1f;
+    }
+
+    /**
+     * ACTION_UP: dismiss left, right or not at all
+     */
+    @Benchmark
+    public int up() {
+        int i = mIndex++ & (GESTURES - 1);
+        return SwipeDecision.decide(mDeltaX[i], mVelocityX[i], mVelocityY[i], VIEW_WIDTH,
+                                    MIN_VELOCITY, MAX_VELOCITY, true);
+    }
+}
@@ -0,0 +1,239 @@
+package org.notlocalhost.superlistview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JankTracker driven by a fake frame source and clock
+ */
+public class JankTrackerTest {
+
+    // Even, so half a frame is exact
+    private static final long FRAME = 16000000L;
+    private static final long START = 1000000000L;
+
+    private FakeClock       mClock;
+    private FakeFrameSource mFrameSource;
+    private JankTracker     mTracker;
+    private ScrollMetrics   mMetrics;
+    private int             mReports;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock();
+        mFrameSource = new FakeFrameSource(mClock);
+        mTracker = new JankTracker(mFrameSource, mClock);
+        mTracker.setFrameIntervalNanos(FRAME);
+        mTracker.setOnScrollMetricsListener("test", new JankTracker.OnScrollMetricsListener() {
+            @Override
+            public void onScrollMetrics(String tag, ScrollMetrics metrics) {
+                assertEquals("test", tag);
+                mMetrics = metrics;
+                mReports++;
+            }
+        });
+        mClock.now = START;
+    }
+
+    @Test
+    public void countsIntervalsNotFrames() {
+        mTracker.startSession();
+        assertTrue(mFrameSource.started);
+        mFrameSource.frame(0);
+        mFrameSource.frame(FRAME);
+        mFrameSource.frame(FRAME);
+        mTracker.endSession();
+
+        assertFalse(mFrameSource.started);
+        assertEquals(1, mReports);
+        // Three frames are two intervals
+        assertEquals(2, mMetrics.frames);
+        assertEquals(0, mMetrics.jankyFrames);
+        assertEquals(0, mMetrics.droppedFrames);
+        assertEquals(FRAME, mMetrics.maxFrameIntervalNanos);
+        assertEquals(2 * FRAME, mMetrics.durationNanos);
+    }
+
+    @Test
+    public void exactlyOneIntervalIsNotJanky() {
+        assertDropped(FRAME, 0);
+    }
+
+    @Test
+    public void lateVsyncUnderHalfAFrameIsNotJanky() {
+        assertDropped(FRAME + FRAME / 2 - 1, 0);
+    }
+
+    @Test
+    public void oneAndAHalfIntervalsDropOneFrame() {
+        // round(1.5) - 1
+        assertDropped(FRAME + FRAME / 2, 1);
+    }
+
+    @Test
+    public void twoIntervalsDropOneFrame() {
+        assertDropped(2 * FRAME, 1);
+    }
+
+    @Test
+    public void longFrameDropsEveryMissedVsync() {
+        assertDropped(5 * FRAME, 4);
+    }
+
+    @Test
+    public void frameIntervalChangesTheMath() {
+        mTracker.setFrameIntervalNanos(FRAME / 2);
+        mTracker.startSession();
+        mFrameSource.frame(0);
+        mFrameSource.frame(FRAME);
+        mTracker.endSession();
+
+        // Twice the refresh rate, the same interval misses one vsync
+        assertEquals(1, mMetrics.jankyFrames);
+        assertEquals(1, mMetrics.droppedFrames);
+    }
+
+    @Test
+    public void defaultsTo60Hz() {
+        JankTracker tracker = new JankTracker(mFrameSource, mClock);
+        tracker.setOnScrollMetricsListener("test", new JankTracker.OnScrollMetricsListener() {
+            @Override
+            public void onScrollMetrics(String tag, ScrollMetrics metrics) {
+                mMetrics = metrics;
+            }
+        });
+        tracker.startSession();
+        mFrameSource.frame(0);
+        mFrameSource.frame(JankTracker.DEFAULT_FRAME_INTERVAL_NANOS);
+        mFrameSource.frame(2 * JankTracker.DEFAULT_FRAME_INTERVAL_NANOS);
+        tracker.endSession();
+
+        assertEquals(2, mMetrics.frames);
+        assertEquals(1, mMetrics.droppedFrames);
+    }
+
+    @Test
+    public void sumsOverTheSession() {
+        mTracker.startSession();
+        mFrameSource.frame(0);
+        mFrameSource.frame(FRAME);
+        mFrameSource.frame(3 * FRAME);
+        mFrameSource.frame(FRAME);
+        mFrameSource.frame(FRAME + FRAME / 2);
+        mTracker.endSession();
+
+        assertEquals(4, mMetrics.frames);
+        assertEquals(2, mMetrics.jankyFrames);
+        assertEquals(3, mMetrics.droppedFrames);
+        assertEquals(3 * FRAME, mMetrics.maxFrameIntervalNanos);
+    }
+
+    @Test
+    public void sessionWithoutIntervalIsNotReported() {
+        mTracker.startSession();
+        mFrameSource.frame(0);
+        mTracker.endSession();
+
+        assertEquals(0, mReports);
+        assertNull(mMetrics);
+    }
+
+    @Test
+    public void framesOutsideASessionAreIgnored() {
+        mTracker.onFrame(START);
+        mTracker.startSession();
+        mFrameSource.frame(0);
+        mFrameSource.frame(FRAME);
+        mTracker.endSession();
+        mTracker.onFrame(mClock.now + 10 * FRAME);
+
+        assertEquals(1, mReports);
+        assertEquals(1, mMetrics.frames);
+        assertEquals(0, mMetrics.droppedFrames);
+    }
+
+    @Test
+    public void sessionsStartFresh() {
+        mTracker.startSession();
+        mFrameSource.frame(0);
+        mFrameSource.frame(4 * FRAME);
+        mTracker.endSession();
+        assertEquals(3, mMetrics.droppedFrames);
+
+        // The idle time between the sessions isn't an interval
+        mClock.now += 100 * FRAME;
+        mTracker.startSession();
+        mFrameSource.frame(0);
+        mFrameSource.frame(FRAME);
+        mTracker.endSession();
+
+        assertEquals(2, mReports);
+        assertNotNull(mMetrics);
+        assertEquals(1, mMetrics.frames);
+        assertEquals(0, mMetrics.droppedFrames);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveFrameInterval() {
+        mTracker.setFrameIntervalNanos(0);
+    }
+
+    private void assertDropped(long interval, int dropped) {
+        mTracker.startSession();
+        mFrameSource.frame(0);
+        mFrameSource.frame(interval);
+        mTracker.endSession();
+
+        assertEquals(1, mMetrics.frames);
+        assertEquals(dropped > 0 ? 1 : 0, mMetrics.jankyFrames);
+        assertEquals(dropped, mMetrics.droppedFrames);
+        assertEquals(interval, mMetrics.maxFrameIntervalNanos);
+    }
+
+    private static class FakeClock implements JankTracker.Clock {
+        long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    /**
+     * Delivers frames on demand, the clock moving with them
+     */
+    private static class FakeFrameSource implements JankTracker.FrameSource {
+        private final FakeClock mClock;
+        private JankTracker     mTracker;
+        boolean                 started;
+
+        FakeFrameSource(FakeClock clock) {
+            mClock = clock;
+        }
+
+        @Override
+        public void start(JankTracker tracker) {
+            mTracker = tracker;
+            started = true;
+        }
+
+        @Override
+        public void stop() {
+            started = false;
+        }
+
+        /**
+         * Advance the clock by delay then deliver a frame
+         */
+        void frame(long delay) {
+            mClock.now += delay;
+            if (started) mTracker.onFrame(mClock.now);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.notlocalhost.superlistview;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The swipe gestures and the collapse of the dismissed rows run on every touch event and every
+ * animation frame, they must not allocate once warmed up
+ */
+public class SwipeAllocationTest {
+
+    private static final int GESTURES     = 2000;
+    private static final int MOVES        = 20;
+    private static final int SLOP         = 16;
+    private static final int VIEW_WIDTH   = 1080;
+    private static final int MIN_VELOCITY = 800;
+    private static final int MAX_VELOCITY = 24000;
+    private static final int VISIBLE_ROWS = 12;
+    private static final int ROW_HEIGHT   = 96;
+    private static final int FRAMES       = 20;
+    // Reading the counter itself, whatever the number of gestures
+    private static final int SLACK        = 256;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private final PendingDismissQueue<Object> mQueue = new PendingDismissQueue<Object>();
+    private final Object mView = new Object();
+    private final int[] mPositions = new int[2];
+    private int mSink;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void swipeGestureDoesNotAllocate() {
+        // Warm up, so the measure doesn't count class loading and the interpreter
+        swipe(GESTURES);
+        long before = allocatedBytes();
+        swipe(GESTURES);
+        long allocated = allocatedBytes() - before;
+        assertTrue("Allocated " + allocated + " bytes for " + GESTURES * MOVES + " events",
+                   allocated < SLACK);
+    }
+
+    @Test
+    public void dismissDoesNotAllocate() {
+        dismiss(GESTURES);
+        long before = allocatedBytes();
+        dismiss(GESTURES);
+        long allocated = allocatedBytes() - before;
+        assertTrue("Allocated " + allocated + " bytes for " + GESTURES * FRAMES + " frames",
+                   allocated < SLACK);
+    }
+
+    /**
+     * What onTouch does: ACTION_MOVE events, then the ACTION_UP decision
+     */
+    private void swipe(int gestures) {
+        for (int g = 0; g < gestures; g++) {
+            float direction = (g & 1) == 0 ? 1f : -1f;
+            float deltaX = 0;
+            float deltaY = 0;
+            boolean swiping = false;
+            for (int m = 0; m < MOVES; m++) {
+                deltaX += direction * (g % 50 + 1);
+                deltaY += m % 3 - 1;
+                swiping |= SwipeDecision.isSwipe(deltaX, deltaY, SLOP);
+                if (swiping) {
+                    mSink += (int) (SwipeDecision.swipeAlpha(deltaX, VIEW_WIDTH) * 255);
+                }
+            }
+            mSink += SwipeDecision.decide(deltaX, direction * g * 10, 0, VIEW_WIDTH,
+                                          MIN_VELOCITY, MAX_VELOCITY, swiping);
+        }
+    }
+
+    /**
+     * What performDismiss and onCollapseFrame do: queue a few dismissals, then collapse them
+     */
+    private void dismiss(int dismissals) {
+        for (int d = 0; d < dismissals; d++) {
+            mQueue.add(d % VISIBLE_ROWS, mView, ROW_HEIGHT, d);
+            mQueue.add((d + 5) % VISIBLE_ROWS, mView, ROW_HEIGHT, d);
+            for (int f = 1; f <= FRAMES; f++) {
+                for (int i = 0; i < mQueue.size(); i++) {
+                    mQueue.setCollapsed(i, mQueue.getHeight(i) * f / FRAMES);
+                }
+                for (int row = 0; row < VISIBLE_ROWS; row++) {
+                    mSink += mQueue.getCollapsedAbove(row);
+                }
+            }
+            mQueue.copyPositions(mPositions);
+            mQueue.clear();
+        }
+    }
+
+    private long allocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
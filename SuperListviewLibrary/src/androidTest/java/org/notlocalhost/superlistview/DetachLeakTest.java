@@ -0,0 +1,190 @@
+package org.notlocalhost.superlistview;
+
+import android.content.Context;
+import android.database.DataSetObserver;
+import android.support.v4.widget.SwipeRefreshLayout;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import android.widget.ArrayAdapter;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list detached from its window while its adapter is still set must not be kept alive by the
+ * adapter, which often outlives it (retained fragment, cache, singleton)
+ */
+public class DetachLeakTest extends ActivityInstrumentationTestCase2<TestActivity> {
+
+    private static final int GC_ATTEMPTS = 10;
+    private static final int LISTS       = 4;
+    private static final int SWAPS       = 2000;
+
+    private ObserverCountingAdapter      mAdapter;
+    private WeakReference<SuperListview> mDetachedList;
+
+    public DetachLeakTest() {
+        super(TestActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mAdapter = new ObserverCountingAdapter(getActivity());
+        for (int i = 0; i < 50; i++) {
+            mAdapter.add("Item " + i);
+        }
+    }
+
+    public void testDetachedListReleasesTheAdapter() throws Throwable {
+        attachThenDetach();
+
+        // The list and the widget observers are gone with the window
+        assertEquals(0, mAdapter.observers);
+        assertCollected(mDetachedList);
+    }
+
+    public void testReattachedListObservesAgain() throws Throwable {
+        final TestActivity activity = getActivity();
+        final SuperListview[] list = new SuperListview[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                list[0] = new SuperListview(activity);
+                list[0].setAdapter(mAdapter);
+                activity.setContentView(list[0]);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        final int attachedObservers = mAdapter.observers;
+        assertTrue(attachedObservers > 0);
+
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                activity.setContentView(new View(activity));
+                activity.setContentView(list[0]);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        // Registered again, not once more per attach
+        assertEquals(attachedObservers, mAdapter.observers);
+    }
+
+    public void testSwappingAdaptersKeepsOneRegistration() throws Throwable {
+        final TestActivity activity = getActivity();
+        final ObserverCountingAdapter other = new ObserverCountingAdapter(activity);
+        for (int i = 0; i < 20; i++) {
+            other.add("Other " + i);
+        }
+        // What a single attached list registers
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                SuperListview list = new SuperListview(activity);
+                list.setAdapter(mAdapter);
+                activity.setContentView(list);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        final int attachedObservers = mAdapter.observers;
+        assertTrue(attachedObservers > 0);
+
+        final List<WeakReference<SuperListview>> lists = new ArrayList<WeakReference<SuperListview>>();
+        for (int l = 0; l < LISTS; l++) {
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    SuperListview list = new SuperListview(activity);
+                    // Replaces the previous list, which is detached with an adapter still set
+                    activity.setContentView(list);
+                    for (int i = 0; i < SWAPS; i++) {
+                        list.setAdapter((i & 1) == 0 ? other : mAdapter);
+                        if (i % 3 == 0) {
+                            list.clear();
+                        }
+                    }
+                    // SWAPS is even, the last adapter set is mAdapter
+                    lists.add(new WeakReference<SuperListview>(list));
+                }
+            });
+            getInstrumentation().waitForIdleSync();
+        }
+
+        // The last list only, once
+        assertEquals(attachedObservers, mAdapter.observers);
+        assertEquals(0, other.observers);
+        for (int l = 0; l < LISTS - 1; l++) {
+            assertCollected(lists.get(l));
+        }
+    }
+
+    /**
+     * Attach a list with its listeners to the activity, then replace it, the adapter still set
+     */
+    private void attachThenDetach() throws Throwable {
+        final TestActivity activity = getActivity();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                SuperListview list = new SuperListview(activity);
+                list.setAdapter(mAdapter);
+                list.setupMoreListener(new OnMoreListener() {
+                    @Override
+                    public void onMoreAsked(int numberOfItems, int numberBeforeMore, int currentItemPos) {
+                    }
+                }, 10);
+                list.setRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
+                    @Override
+                    public void onRefresh() {
+                    }
+                });
+                list.setOnScrollMetricsListener("leak", new JankTracker.OnScrollMetricsListener() {
+                    @Override
+                    public void onScrollMetrics(String tag, ScrollMetrics metrics) {
+                    }
+                });
+                activity.setContentView(list);
+                mDetachedList = new WeakReference<SuperListview>(list);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                activity.setContentView(new View(activity));
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private static void assertCollected(WeakReference<?> reference) {
+        for (int i = 0; i < GC_ATTEMPTS && reference.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+        }
+        assertNull("The detached list is still reachable", reference.get());
+    }
+
+    private static class ObserverCountingAdapter extends ArrayAdapter<String> {
+
+        int observers;
+
+        ObserverCountingAdapter(Context context) {
+            super(context, android.R.layout.simple_list_item_1);
+        }
+
+        @Override
+        public void registerDataSetObserver(DataSetObserver observer) {
+            super.registerDataSetObserver(observer);
+            observers++;
+        }
+
+        @Override
+        public void unregisterDataSetObserver(DataSetObserver observer) {
+            super.unregisterDataSetObserver(observer);
+            observers--;
+        }
+    }
+}
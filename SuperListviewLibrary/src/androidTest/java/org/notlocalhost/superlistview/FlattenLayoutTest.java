@@ -0,0 +1,50 @@
+package org.notlocalhost.superlistview;
+
+import android.test.AndroidTestCase;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * The flattened layout measures the visible state once per layout pass, the nested
+ * RelativeLayout measures it twice
+ */
+public class FlattenLayoutTest extends AndroidTestCase {
+
+    private static final int WIDTH  = 480;
+    private static final int HEIGHT = 800;
+
+    public void testFlatLayoutMeasuresTheStateOnce() {
+        MeasureCountingView flat = countProgressPass(R.layout.test_superlistview_flat);
+        assertEquals(1, flat.measures);
+        assertEquals(1, flat.layouts);
+    }
+
+    public void testFlatLayoutMeasuresLessThanNested() {
+        MeasureCountingView flat = countProgressPass(R.layout.test_superlistview_flat);
+        MeasureCountingView nested = countProgressPass(R.layout.test_superlistview_nested);
+        assertTrue("flat " + flat.measures + ", nested " + nested.measures, flat.measures < nested.measures);
+        assertEquals(nested.layouts, flat.layouts);
+    }
+
+    /**
+     * Show the progress, then count the measures and layouts of a layout pass it requested
+     */
+    private MeasureCountingView countProgressPass(int layoutId) {
+        SuperListview list = (SuperListview) LayoutInflater.from(getContext()).inflate(layoutId, null);
+        list.showProgress();
+        layout(list);
+
+        MeasureCountingView progress = (MeasureCountingView) list.findViewById(R.id.counting_view);
+        assertNotNull(progress);
+        progress.resetCounts();
+        progress.requestLayout();
+        layout(list);
+        return progress;
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                     View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
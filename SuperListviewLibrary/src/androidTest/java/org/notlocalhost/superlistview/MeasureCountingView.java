@@ -0,0 +1,39 @@
+package org.notlocalhost.superlistview;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Counts its measure and layout passes
+ */
+public class MeasureCountingView extends View {
+
+    public int measures;
+    public int layouts;
+
+    public MeasureCountingView(Context context) {
+        super(context);
+    }
+
+    public MeasureCountingView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public void resetCounts() {
+        measures = 0;
+        layouts = 0;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        measures++;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        layouts++;
+        super.onLayout(changed, left, top, right, bottom);
+    }
+}
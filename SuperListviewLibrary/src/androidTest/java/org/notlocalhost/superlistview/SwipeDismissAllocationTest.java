@@ -0,0 +1,175 @@
+package org.notlocalhost.superlistview;
+
+import android.os.Debug;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+
+/**
+ * The real listener, driven by touch events on an attached list, must not allocate once warmed
+ * up: neither while a row follows the finger nor when the dismissed rows are collapsed and
+ * committed
+ */
+public class SwipeDismissAllocationTest extends ActivityInstrumentationTestCase2<TestActivity> {
+
+    private static final int GESTURES   = 200;
+    private static final int DISMISSALS = 30;
+    private static final int WARM_UP    = 3;
+    private static final int MOVES      = 20;
+    private static final int MOVE_TIME  = 16;
+    private static final int ROW        = 2;
+
+    private ListView                          mList;
+    private SwipeDismissListViewTouchListener mListener;
+    private long                              mSettleTime;
+    private int                               mDismissals;
+
+    public SwipeDismissAllocationTest() {
+        super(TestActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final TestActivity activity = getActivity();
+        mSettleTime = 4 * activity.getResources().getInteger(android.R.integer.config_shortAnimTime) + 100;
+        try {
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    ArrayAdapter<String> adapter = new ArrayAdapter<String>(activity,
+                                                                            android.R.layout.simple_list_item_1);
+                    for (int i = 0; i < 50; i++) {
+                        adapter.add("Item " + i);
+                    }
+                    mList = new ListView(activity);
+                    mList.setAdapter(adapter);
+                    mListener = new SwipeDismissListViewTouchListener(mList, new SwipeDismissListViewTouchListener.AbsListDismissCallbacks() {
+                        @Override
+                        public boolean canDismiss(int position) {
+                            return true;
+                        }
+
+                        @Override
+                        public void onDismiss(AbsListView listView, int[] reverseSortedPositions) {
+                            // Keep the rows, the same one is swiped again
+                            mDismissals++;
+                        }
+                    });
+                    mListener.setLayoutFreeCollapse(true);
+                    activity.setContentView(mList);
+                }
+            });
+        } catch (Throwable t) {
+            throw new Exception(t);
+        }
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testSwipeDoesNotAllocate() throws Throwable {
+        final MotionEvent[] gesture = gesture(mList.getWidth() / 4);
+        final int[] allocated = new int[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < WARM_UP; i++) {
+                    drag(gesture);
+                    release(gesture);
+                }
+                Debug.resetThreadAllocCount();
+                for (int i = 0; i < GESTURES; i++) {
+                    // Only the events following the finger, the release starts an animation
+                    Debug.startAllocCounting();
+                    drag(gesture);
+                    Debug.stopAllocCounting();
+                    release(gesture);
+                }
+                allocated[0] = Debug.getThreadAllocSize();
+            }
+        });
+        assertTrue("Allocated " + allocated[0] + " bytes for " + GESTURES + " gestures",
+                   allocated[0] < GESTURES);
+    }
+
+    public void testDismissDoesNotAllocate() throws Throwable {
+        MotionEvent[] dismiss = gesture(mList.getWidth() * 3 / 4);
+        MotionEvent[] snapBack = gesture(mList.getWidth() / 4);
+        settle(dismiss, WARM_UP);
+        settle(snapBack, WARM_UP);
+        mDismissals = 0;
+
+        // Both release the row into an animation of the same length, a dismiss then collapses
+        // it and fires the callback. Anything allocated on top of the animations is the listener's.
+        int dismissed = settle(dismiss, DISMISSALS);
+        assertEquals(DISMISSALS, mDismissals);
+        int snapped = settle(snapBack, DISMISSALS);
+        int perDismiss = (dismissed - snapped) / DISMISSALS;
+        assertTrue("Allocated " + perDismiss + " bytes per dismiss", perDismiss < 32);
+    }
+
+    /**
+     * Swipe the row and release it, then let its animations run
+     *
+     * @return bytes allocated by the main thread
+     */
+    private int settle(final MotionEvent[] gesture, int count) throws Throwable {
+        final int[] allocated = new int[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    drag(gesture);
+                    release(gesture);
+                }
+            });
+            Thread.sleep(mSettleTime);
+            getInstrumentation().waitForIdleSync();
+        }
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Debug.stopAllocCounting();
+                allocated[0] = Debug.getThreadAllocSize();
+            }
+        });
+        return allocated[0];
+    }
+
+    private void drag(MotionEvent[] gesture) {
+        for (int i = 0; i < gesture.length - 1; i++) {
+            mListener.onTouch(mList, gesture[i]);
+        }
+    }
+
+    private void release(MotionEvent[] gesture) {
+        mListener.onTouch(mList, gesture[gesture.length - 1]);
+    }
+
+    /**
+     * Events sliding a finger right over a row, obtained once and replayed by every gesture
+     */
+    private MotionEvent[] gesture(int distance) {
+        View row = mList.getChildAt(ROW);
+        float x = row.getWidth() / 8;
+        float y = row.getTop() + row.getHeight() / 2;
+        MotionEvent[] events = new MotionEvent[MOVES + 2];
+        events[0] = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0);
+        for (int i = 1; i <= MOVES; i++) {
+            events[i] = MotionEvent.obtain(0, i * MOVE_TIME, MotionEvent.ACTION_MOVE,
+                                           x + distance * i / MOVES, y, 0);
+        }
+        events[MOVES + 1] = MotionEvent.obtain(0, (MOVES + 1) * MOVE_TIME, MotionEvent.ACTION_UP,
+                                               x + distance, y, 0);
+        return events;
+    }
+}
@@ -0,0 +1,9 @@
+package org.notlocalhost.superlistview;
+
+import android.app.Activity;
+
+/**
+ * Window the instrumentation tests attach their lists to
+ */
+public class TestActivity extends Activity {
+}
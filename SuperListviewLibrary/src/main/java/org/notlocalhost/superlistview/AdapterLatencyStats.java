@@ -0,0 +1,105 @@
+package org.notlocalhost.superlistview;
+
+import java.io.PrintWriter;
+
+/**
+ * Row latencies of an adapter, per view type and kind of call. A {@link SuperAdapter} is timed step
+ * by step, creating a row apart from binding it. Other adapters can only be timed a whole getView
+ * at a time, split between the calls given no convertView (inflate and bind) and the others.
+ * Must be used on the UI thread.
+ */
+public class AdapterLatencyStats {
+
+    /** Type of the rows the adapter doesn't recycle, such as headers and footers */
+    public static final int OTHER_VIEW_TYPE = -1;
+
+    /** SuperAdapter: createViewHolder, when neither the list nor the pool had a row */
+    public static final int KIND_CREATE             = 0;
+    /** SuperAdapter: onBindViewHolder or onBindLightViewHolder */
+    public static final int KIND_BIND               = 1;
+    /** Other adapters: a whole getView given no convertView */
+    public static final int KIND_GET_VIEW_NEW       = 2;
+    /** Other adapters: a whole getView given a convertView */
+    public static final int KIND_GET_VIEW_CONVERTED = 3;
+
+    private static final int      KINDS      = 4;
+    private static final String[] KIND_NAMES = {"create", "bind", "getView new", "getView converted"};
+
+    // KINDS histograms per view type, the first ones are for OTHER_VIEW_TYPE
+    private LatencyHistogram[] mHistograms = new LatencyHistogram[0];
+
+    /**
+     * @param viewType
+     * @param kind     One of the KIND_ constants
+     * @param nanos
+     */
+    public void record(int viewType, int kind, long nanos) {
+        int index = indexOf(viewType, kind);
+        if (index >= mHistograms.length) {
+            // Only allocates the first time a view type is seen
+            LatencyHistogram[] histograms = new LatencyHistogram[index - index % KINDS + KINDS];
+            System.arraycopy(mHistograms, 0, histograms, 0, mHistograms.length);
+            mHistograms = histograms;
+        }
+        LatencyHistogram histogram = mHistograms[index];
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            mHistograms[index] = histogram;
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * @param viewType
+     * @param kind     One of the KIND_ constants
+     * @return the histogram, or null when nothing was recorded for it
+     */
+    public LatencyHistogram getHistogram(int viewType, int kind) {
+        int index = indexOf(viewType, kind);
+        return index < mHistograms.length ? mHistograms[index] : null;
+    }
+
+    /**
+     * Write one line per view type and kind of call, with the count and the latency percentiles
+     * @param writer
+     */
+    public void dump(PrintWriter writer) {
+        for (int i = 0; i < mHistograms.length; i++) {
+            LatencyHistogram histogram = mHistograms[i];
+            if (histogram == null || histogram.getCount() == 0) {
+                continue;
+            }
+            int viewType = i / KINDS - 1;
+            writer.print(viewType == OTHER_VIEW_TYPE ? "other" : "type " + viewType);
+            writer.print(" " + KIND_NAMES[i % KINDS]);
+            writer.print(": count=" + histogram.getCount());
+            writer.print(" mean=" + toMs(histogram.getMeanNanos()));
+            writer.print("ms p50=" + toMs(histogram.getPercentileNanos(50)));
+            writer.print("ms p90=" + toMs(histogram.getPercentileNanos(90)));
+            writer.print("ms p99=" + toMs(histogram.getPercentileNanos(99)));
+            writer.println("ms max=" + toMs(histogram.getMaxNanos()) + "ms");
+        }
+        writer.flush();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : mHistograms) {
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+
+    private static int indexOf(int viewType, int kind) {
+        if (kind < 0 || kind >= KINDS)
+            throw new IllegalArgumentException("Unknown kind " + kind);
+        if (viewType < 0) {
+            viewType = OTHER_VIEW_TYPE;
+        }
+        return (viewType + 1) * KINDS + kind;
+    }
+
+    private static float toMs(long nanos) {
+        return nanos / 1000000f;
+    }
+}
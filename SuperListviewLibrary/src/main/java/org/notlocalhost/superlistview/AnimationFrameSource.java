@@ -0,0 +1,40 @@
+package org.notlocalhost.superlistview;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+/**
+ * Frames seen through animation callbacks posted on a view, timed with a clock.
+ * For the versions without a Choreographer
+ */
+class AnimationFrameSource implements JankTracker.FrameSource, Runnable {
+
+    private final View              mView;
+    private final JankTracker.Clock mClock;
+    private JankTracker             mTracker;
+
+    AnimationFrameSource(View view, JankTracker.Clock clock) {
+        mView = view;
+        mClock = clock;
+    }
+
+    @Override
+    public void start(JankTracker tracker) {
+        mTracker = tracker;
+        ViewCompat.postOnAnimation(mView, this);
+    }
+
+    @Override
+    public void stop() {
+        mTracker = null;
+        mView.removeCallbacks(this);
+    }
+
+    @Override
+    public void run() {
+        if (mTracker != null) {
+            mTracker.onFrame(mClock.nanoTime());
+            ViewCompat.postOnAnimation(mView, this);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package org.notlocalhost.superlistview;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.database.DataSetObserver;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
@@ -12,9 +16,14 @@ import android.view.View;
 import android.view.ViewStub;
 import android.widget.AbsListView;
 import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.FrameLayout;
+import android.widget.HeaderViewListAdapter;
 import android.widget.ListAdapter;
 
+import java.util.ArrayList;
+
 
 /**
  * Created by kentin on 24/04/14.
@@ -23,6 +32,19 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
 
     protected              int   ITEM_LEFT_TO_LOAD_MORE = 10;
 
+    /** No adapter yet, the progress is shown */
+    public static final int STATE_LOADING      = 0;
+    /** The adapter has items */
+    public static final int STATE_CONTENT      = 1;
+    /** The adapter is empty, the empty view is shown when there is one */
+    public static final int STATE_EMPTY        = 2;
+    /** Pulled to refresh, the refresh indicator is shown over the content */
+    public static final int STATE_REFRESHING   = 3;
+    /** The more progress is shown under the content */
+    public static final int STATE_LOADING_MORE = 4;
+    /** Loading failed, the empty view is shown when there is one */
+    public static final int STATE_ERROR        = 5;
+
     protected ViewStub    mProgress;
     protected ViewStub    mMoreProgress;
     protected AbsListView mList;
@@ -43,13 +65,120 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
     protected AbsListView.OnScrollListener mOnScrollListener;
 
     protected OnMoreListener     mOnMoreListener;
+    protected LoadMorePolicy     mLoadMorePolicy = new LoadMorePolicy();
     protected boolean            isLoadingMore;
+    // Adapter count when more was asked, the More event is enabled again once the count grows
+    private   int                mCountAtLoadMore;
+    // Nothing left to load, the More event isn't sent whatever the adapter does
+    private   boolean            mMoreExhausted;
+    protected OnPreviousListener mOnPreviousListener;
+    protected boolean            isLoadingPrevious;
     protected int                mSelector;
     protected SwipeRefreshLayout mPtrLayout;
 
+    protected ListAttributes mAttributes;
     protected int mSuperListViewMainLayout;
     private   int mProgressId;
 
+    protected ListAdapter mAdapter;
+
+    // mState is one of LOADING, CONTENT, EMPTY or ERROR, refreshing and loading more are shown over it.
+    // The visibilities last applied are mirrored, a stub forwards its visibility once inflated
+    // so its own getVisibility can't be trusted
+    private int                    mState = STATE_LOADING;
+    private int                    mNotifiedState = STATE_LOADING;
+    private boolean                mMoreProgressWanted;
+    private boolean                mListHidden;
+    private boolean                mDeferProgress = true;
+    private int                    mProgressVisibility = View.GONE;
+    private int                    mEmptyVisibility = View.GONE;
+    private int                    mMoreProgressVisibility = View.GONE;
+    private int                    mListVisibility;
+    private OnStateChangedListener mOnStateChangedListener;
+    private SwipeRefreshLayout.OnRefreshListener mOnRefreshListener;
+
+    private final SwipeRefreshLayout.OnRefreshListener mRefreshListener = new SwipeRefreshLayout.OnRefreshListener() {
+        @Override
+        public void onRefresh() {
+            notifyStateChanged();
+            if (mOnRefreshListener != null) mOnRefreshListener.onRefresh();
+        }
+    };
+
+    private DismissUndoAdapter                                    mUndoAdapter;
+    private long                                                  mUndoTimeout = -1;
+    private SwipeDismissListViewTouchListener.AbsListDismissCallbacks mUndoCallbacks;
+    private boolean                                               mUndoAutoRemove;
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    // Adapter updates posted from any thread, run together at the start of the next frame
+    private final ArrayList<Runnable> mPendingUpdates = new ArrayList<Runnable>();
+    private final ArrayList<Runnable> mRunningUpdates = new ArrayList<Runnable>();
+    // Rows taken from the list on their way to a RecycledViewPool
+    private final ArrayList<View>     mReclaimedRows  = new ArrayList<View>();
+    private boolean                   mUpdatesPosted;
+    private boolean                   mCoalesceChanges;
+    private boolean                   mChangePosted;
+
+    private final Runnable mPostFlushUpdates = new Runnable() {
+        @Override
+        public void run() {
+            ViewCompat.postOnAnimation(BaseSuperAbsListview.this, mFlushUpdates);
+        }
+    };
+
+    private final Runnable mFlushUpdates = new Runnable() {
+        @Override
+        public void run() {
+            flushAdapterUpdates();
+        }
+    };
+
+    private boolean         mAttached;
+    private boolean         mFlinging;
+    private JankTracker     mJankTracker;
+    private AdapterLatencyStats mLatencyStats;
+    private InstrumentedListAdapter mInstrumentedAdapter;
+
+    // Current load more cycle, mMoreTriggerTime is 0 when none is running
+    private LoadMoreMetrics.OnLoadMoreMetricsListener mLoadMoreMetricsListener;
+    private long mMoreTriggerTime;
+    private int  mMoreItemsLeft;
+    private int  mMoreDistance;
+    private int  mMoreCountBefore;
+    private long mMoreStallStart;
+    private long mMoreStall;
+    private ViewPreInflater mPreInflater;
+    private boolean mObserving;
+
+    private final DataSetObserver mDataObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            if (!mCoalesceChanges) {
+                onAdapterChanged();
+            } else if (!mChangePosted) {
+                mChangePosted = true;
+                ViewCompat.postOnAnimation(BaseSuperAbsListview.this, mApplyChange);
+            }
+        }
+    };
+
+    private final Runnable mApplyChange = new Runnable() {
+        @Override
+        public void run() {
+            mChangePosted = false;
+            onAdapterChanged();
+        }
+    };
+
+    private final Runnable mCommitDismissed = new Runnable() {
+        @Override
+        public void run() {
+            commitDismissedItems();
+        }
+    };
+
     public SwipeRefreshLayout getSwipeToRefresh() {
         return mPtrLayout;
     }
@@ -60,42 +189,63 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
 
     public BaseSuperAbsListview(Context context) {
         super(context);
-        initView();
+        init(null);
     }
 
     public BaseSuperAbsListview(Context context, AttributeSet attrs) {
         super(context, attrs);
-        initAttrs(attrs);
-        initView();
+        init(attrs);
     }
 
     public BaseSuperAbsListview(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        initAttrs(attrs);
-        initView();
+        init(attrs);
     }
 
-    protected void initAttrs(AttributeSet attrs) {
-        TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.superlistview);
+    private void init(AttributeSet attrs) {
+        Tracing.beginSection("SuperListview#initAttrs");
+        try {
+            initAttrs(attrs);
+        } finally {
+            Tracing.endSection();
+        }
+        Tracing.beginSection("SuperListview#initView");
         try {
-            mClipToPadding = a.getBoolean(R.styleable.superlistview_superlv__listClipToPadding, false);
-            mDivider = new ColorDrawable(a.getColor(R.styleable.superlistview_superlv__listDivider, 0));
-            mDividerHeight = a.getDimension(R.styleable.superlistview_superlv__listDividerHeight, 0.0f);
-            mPadding = (int) a.getDimension(R.styleable.superlistview_superlv__listPadding, -1.0f);
-            mPaddingTop = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingTop, 0.0f);
-            mPaddingBottom = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingBottom, 0.0f);
-            mPaddingLeft = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingLeft, 0.0f);
-            mPaddingRight = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingRight, 0.0f);
-            mScrollbarStyle = a.getInt(R.styleable.superlistview_superlv__scrollbarStyle, -1);
-            mEmptyId = a.getResourceId(R.styleable.superlistview_superlv__empty, 0);
-            mMoreProgressId = a.getResourceId(R.styleable.superlistview_superlv__moreProgress, R.layout.view_more_progress);
-            mProgressId = a.getResourceId(R.styleable.superlistview_superlv__progress, R.layout.view_progress);
-            mSelector = a.getResourceId(R.styleable.superlistview_superlv__listSelector, 0);
+            initView();
         } finally {
-            a.recycle();
+            Tracing.endSection();
         }
     }
 
+    /**
+     * Resolve the attributes in {@link #mAttributes}, from the cache when another list was inflated
+     * with the same attributes, and copy them to the fields
+     * @param attrs
+     */
+    protected void initAttrs(AttributeSet attrs) {
+        mAttributes = ListAttributes.obtain(getContext(), attrs, usesGridAttributes());
+        mClipToPadding = mAttributes.clipToPadding;
+        mDivider = new ColorDrawable(mAttributes.dividerColor);
+        mDividerHeight = mAttributes.dividerHeight;
+        mPadding = mAttributes.padding;
+        mPaddingTop = mAttributes.paddingTop;
+        mPaddingBottom = mAttributes.paddingBottom;
+        mPaddingLeft = mAttributes.paddingLeft;
+        mPaddingRight = mAttributes.paddingRight;
+        mScrollbarStyle = mAttributes.scrollbarStyle;
+        mEmptyId = mAttributes.emptyId;
+        mMoreProgressId = mAttributes.moreProgressId;
+        mProgressId = mAttributes.progressId;
+        mSelector = mAttributes.selector;
+    }
+
+    /**
+     * @return true to resolve the supergridview attributes too
+     */
+    protected boolean usesGridAttributes() {
+        return false;
+    }
+
     private void initView() {
         if (isInEditMode()) {
             return;
@@ -104,24 +254,19 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
         mPtrLayout = (SwipeRefreshLayout) v.findViewById(R.id.ptr_layout);
         mPtrLayout.setEnabled(false);
 
+        // The stubs are inflated the first time they are made visible.
+        // The progress is shown when attached if no adapter was set by then
         mProgress = (ViewStub) v.findViewById(android.R.id.progress);
-
         mProgress.setLayoutResource(mProgressId);
-        mProgress.inflate();
 
         mMoreProgress = (ViewStub) v.findViewById(R.id.more_progress);
         mMoreProgress.setLayoutResource(mMoreProgressId);
-        if (mMoreProgressId != 0)
-            mMoreProgress.inflate();
-        mMoreProgress.setVisibility(View.GONE);
 
         mEmpty = (ViewStub) v.findViewById(R.id.empty);
         mEmpty.setLayoutResource(mEmptyId);
-        if (mEmptyId != 0)
-            mEmpty.inflate();
-        mEmpty.setVisibility(View.GONE);
 
         initAbsListView(v);
+        mListVisibility = mList.getVisibility();
     }
 
     /**
@@ -138,27 +283,613 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
      * @param adapter
      */
     public void setAdapter(ListAdapter adapter) {
-        mProgress.setVisibility(View.GONE);
-        if (mEmpty != null && mEmptyId != 0)
-            mList.setEmptyView(mEmpty);
-        mList.setVisibility(View.VISIBLE);
-        mPtrLayout.setRefreshing(false);
-        adapter.registerDataSetObserver(new DataSetObserver() {
+        Tracing.beginSection("SuperListview#setAdapter");
+        try {
+            if (mUndoTimeout >= 0) requireStableIds(adapter);
+            commitDismissedItems();
+            boolean rowsTaken = takeRows();
+            ListAdapter previous = mAdapter;
+            endFling();
+            setObservedAdapter(adapter);
+            mList.setAdapter(wrapAdapter(adapter));
+            recycleRows(previous, rowsTaken);
+            if (mPreInflater != null) {
+                mPreInflater.setAdapter(adapter instanceof SuperAdapter ? (SuperAdapter<?>) adapter : null);
+                mPreInflater.start();
+            }
+            // The empty view is driven by the state, not by the list
+            mListHidden = false;
+            isLoadingMore = false;
+            mMoreExhausted = false;
+            cancelLoadMoreCycle();
+            setRefreshingQuietly(false);
+            setState(contentState());
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /**
+     * Remove the adapter from the list and stop observing it, for {@link #clear()}.
+     * Pending dismissals are committed first
+     */
+    protected void releaseAdapter() {
+        commitDismissedItems();
+        boolean rowsTaken = takeRows();
+        ListAdapter previous = mAdapter;
+        endFling();
+        setObservedAdapter(null);
+        mList.setAdapter(wrapAdapter(null));
+        cancelLoadMoreCycle();
+        // A coalesced change posted before the clear has nothing left to apply
+        if (mChangePosted) {
+            mChangePosted = false;
+            removeCallbacks(mApplyChange);
+        }
+        recycleRows(previous, rowsTaken);
+        if (mPreInflater != null) mPreInflater.setAdapter(null);
+    }
+
+    /**
+     * Measure the frames while the list scrolls. Each scroll session, from leaving the idle state
+     * to going back to it, is reported to the listener. Pass a null listener to stop
+     * @param tag      Passed to the listener, to tell the lists apart
+     * @param listener
+     */
+    public void setOnScrollMetricsListener(String tag, JankTracker.OnScrollMetricsListener listener) {
+        if (listener == null) {
+            setJankTracker(null);
+            return;
+        }
+        if (mJankTracker == null) {
+            JankTracker.FrameSource frameSource;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                frameSource = new ChoreographerFrameSource();
+            } else {
+                frameSource = new AnimationFrameSource(this, JankTracker.SYSTEM_CLOCK);
+            }
+            setJankTracker(new JankTracker(frameSource, JankTracker.SYSTEM_CLOCK));
+        }
+        mJankTracker.setOnScrollMetricsListener(tag, listener);
+    }
+
+    /**
+     * Use a tracker built with another frame source or clock
+     * @param tracker
+     */
+    public void setJankTracker(JankTracker tracker) {
+        if (mJankTracker != null) mJankTracker.endSession();
+        mJankTracker = tracker;
+    }
+
+    public JankTracker getJankTracker() {
+        return mJankTracker;
+    }
+
+    /**
+     * Report every load more cycle: how long the load took, how many items were left when it was asked
+     * and how long the user waited at the end of the list. Pass null to stop
+     * @param listener
+     */
+    public void setOnLoadMoreMetricsListener(LoadMoreMetrics.OnLoadMoreMetricsListener listener) {
+        mLoadMoreMetricsListener = listener;
+        if (listener == null) cancelLoadMoreCycle();
+    }
+
+    /**
+     * Drop the running load more cycle without reporting it, when the load was cancelled or there
+     * was nothing left to load. The {@link PagingEngine} calls it, call it from an {@link OnMoreListener}
+     * that gives up without changing the adapter
+     */
+    public void cancelLoadMoreCycle() {
+        mMoreTriggerTime = 0;
+        mMoreStallStart = 0;
+    }
+
+    private void startLoadMoreCycle(long now, int itemsLeft, int count) {
+        mMoreTriggerTime = now;
+        mMoreItemsLeft = itemsLeft;
+        mMoreDistance = mLoadMorePolicy.getDistance(ITEM_LEFT_TO_LOAD_MORE);
+        mMoreCountBefore = count;
+        mMoreStallStart = 0;
+        mMoreStall = 0;
+    }
+
+    private void endLoadMoreCycle(long now, int count) {
+        if (mMoreStallStart != 0) mMoreStall += now - mMoreStallStart;
+        LoadMoreMetrics metrics = new LoadMoreMetrics(now - mMoreTriggerTime, mMoreItemsLeft, mMoreDistance,
+                mMoreStall, count - mMoreCountBefore);
+        mMoreTriggerTime = 0;
+        if (mLoadMoreMetricsListener != null) mLoadMoreMetricsListener.onLoadMoreMetrics(metrics);
+    }
+
+    /**
+     * Record how long the adapter takes to provide its rows, per view type. A {@link SuperAdapter}
+     * is timed creating and binding apart, other adapters a whole getView at a time.
+     * Turning it on or off sets the adapter of the list again, wrapped or not
+     * @param record
+     */
+    public void setRecordAdapterLatency(boolean record) {
+        if (record == (mLatencyStats != null)) return;
+        mLatencyStats = record ? new AdapterLatencyStats() : null;
+        rewrapAdapter();
+    }
+
+    /**
+     * @return the latencies recorded since {@link #setRecordAdapterLatency(boolean)}, null when not recording
+     */
+    public AdapterLatencyStats getAdapterLatencyStats() {
+        return mLatencyStats;
+    }
+
+    /**
+     * Inflate rows of a {@link SuperAdapter} in the background while the list is idle, until its
+     * {@link RecycledViewPool} holds count rows of that type. The adapter must have a pool, and its
+     * onCreateViewHolder must be safe to call off the UI thread for that type and inflate with
+     * {@link SuperAdapter#getLayoutInflater(android.view.ViewGroup)}. A type that fails is no longer pre-inflated
+     * @param viewType
+     * @param count
+     */
+    public void setPreInflateCount(int viewType, int count) {
+        if (mPreInflater == null) {
+            mPreInflater = new ViewPreInflater(mList);
+            mPreInflater.setAdapter(mAdapter instanceof SuperAdapter ? (SuperAdapter<?>) mAdapter : null);
+        }
+        mPreInflater.setCount(viewType, count);
+        mPreInflater.start();
+    }
+
+    /**
+     * Leave the adapter out of fling mode before it is replaced
+     */
+    private void endFling() {
+        if (mFlinging) {
+            mFlinging = false;
+            if (mAdapter instanceof FlingAwareAdapter) ((FlingAwareAdapter) mAdapter).setFlinging(false);
+        }
+    }
+
+    /**
+     * Take the rows of the list, the ones on screen and its scrap, when they may go to a
+     * {@link RecycledViewPool}. The list is left without children
+     * @return false if the rows can't be pooled
+     */
+    private boolean takeRows() {
+        if (!(mAdapter instanceof SuperAdapter) || ((SuperAdapter<?>) mAdapter).getRecycledViewPool() == null) {
+            return false;
+        }
+        mList.reclaimViews(mReclaimedRows);
+        return true;
+    }
+
+    /**
+     * Give the rows taken from the list when its adapter changed to the pool of their adapter,
+     * instead of losing them with the list's recycler. Not on detach, where the list keeps them for
+     * when it comes back
+     */
+    private void recycleRows(ListAdapter adapter, boolean taken) {
+        if (!taken) return;
+        SuperAdapter<?> superAdapter = (SuperAdapter<?>) adapter;
+        for (int i = 0, count = mReclaimedRows.size(); i < count; i++) {
+            superAdapter.recycleView(mReclaimedRows.get(i));
+        }
+        mReclaimedRows.clear();
+    }
+
+    /**
+     * The observer is only registered on the adapter while the list is attached, so an adapter
+     * outliving the list, or swapped back and forth, doesn't keep old lists alive
+     */
+    private void setObservedAdapter(ListAdapter adapter) {
+        if (mObserving) {
+            mAdapter.unregisterDataSetObserver(mDataObserver);
+            mObserving = false;
+        }
+        mAdapter = adapter;
+        if (mAdapter != null && mAttached) {
+            mAdapter.registerDataSetObserver(mDataObserver);
+            mObserving = true;
+        }
+    }
+
+    private void onAdapterChanged() {
+        // A change that brought no item, an empty or last page, mustn't ask again on every scroll,
+        // nor end the cycle or count as a load in the policy's estimate
+        int count = mList.getAdapter() != null ? mList.getAdapter().getCount() : 0;
+        if (isLoadingMore && count > mCountAtLoadMore) {
+            long now = SystemClock.uptimeMillis();
+            isLoadingMore = false;
+            if (mMoreTriggerTime != 0) endLoadMoreCycle(now, count);
+            mLoadMorePolicy.onLoadFinished(now);
+        }
+        isLoadingPrevious = false;
+        setRefreshingQuietly(false);
+        setState(contentState());
+    }
+
+    /**
+     * When true, the work done by the list on each adapter change (state, loading flags, refresh indicator)
+     * is done once on the next frame however many changes the adapter notifies in between.
+     * The list itself already rebinds its rows once per layout pass
+     * @param coalesce
+     */
+    public void setCoalesceChanges(boolean coalesce) {
+        mCoalesceChanges = coalesce;
+    }
+
+    /**
+     * Run an update of the adapter on the UI thread at the start of the next frame. Can be called from any thread.
+     * All the updates posted before that frame are run in order, followed by a single notifyDataSetChanged
+     * when the adapter is a {@link BaseAdapter}, so the updates must not notify themselves
+     * (see ArrayAdapter.setNotifyOnChange).
+     * @param update
+     */
+    public void postAdapterUpdate(Runnable update) {
+        boolean post;
+        synchronized (mPendingUpdates) {
+            if (update != null) mPendingUpdates.add(update);
+            post = !mUpdatesPosted;
+            mUpdatesPosted = true;
+        }
+        if (post) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                mPostFlushUpdates.run();
+            } else {
+                sMainHandler.post(mPostFlushUpdates);
+            }
+        }
+    }
+
+    /**
+     * Notify the adapter changed at the start of the next frame, once however many times this is called
+     * until then. Can be called from any thread
+     */
+    public void postDataSetChanged() {
+        postAdapterUpdate(null);
+    }
+
+    /**
+     * Rebind the row of one item in place, without rebinding the other visible rows.
+     * The adapter must already hold the new data, and must not be notified.
+     * Does nothing when the item isn't visible
+     * @param position Position in the adapter given to {@link #setAdapter(ListAdapter)}
+     */
+    public void notifyItemChanged(int position) {
+        notifyItemRangeChanged(position, 1);
+    }
+
+    /**
+     * Rebind the visible rows of a range of items in place, the rest of the list is left untouched.
+     * The adapter must already hold the new data, must not be notified, and the items must keep
+     * their view type. A row only requests a layout if its content changes size
+     * @param positionStart Position in the adapter given to {@link #setAdapter(ListAdapter)}
+     * @param itemCount     Number of items changed from positionStart
+     */
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        if (itemCount > 0) rebindVisibleRows(positionStart, positionStart + itemCount, false);
+    }
+
+    /**
+     * Rebind the visible rows of the items from start to end (exclusive) in place
+     * @param lightOnly Only rebind the rows a {@link SuperAdapter} bound light during a fling
+     */
+    /**
+     * Give a {@link SparsePagedAdapter} the visible range in its own positions: without the headers
+     * and footers of the list, and past the items hidden by the undo window
+     */
+    private void updateVisibleRange(int firstVisibleItem, int visibleItemCount) {
+        ListAdapter listAdapter = mList.getAdapter();
+        int headers = listAdapter instanceof HeaderViewListAdapter ? ((HeaderViewListAdapter) listAdapter).getHeadersCount() : 0;
+        int count = mUndoAdapter != null ? mUndoAdapter.getCount() : mAdapter.getCount();
+        int first = Math.max(0, firstVisibleItem - headers);
+        int last = Math.min(count - 1, firstVisibleItem + visibleItemCount - 1 - headers);
+        if (last < first) return;
+        if (mUndoAdapter != null) {
+            first = mUndoAdapter.toWrappedPosition(first);
+            last = mUndoAdapter.toWrappedPosition(last);
+        }
+        ((SparsePagedAdapter<?>) mAdapter).setVisibleRange(first, last);
+    }
+
+    private void rebindVisibleRows(int positionStart, int end, boolean lightOnly) {
+        ListAdapter listAdapter = mList.getAdapter();
+        if (listAdapter == null) return;
+        int headers = listAdapter instanceof HeaderViewListAdapter ? ((HeaderViewListAdapter) listAdapter).getHeadersCount() : 0;
+        int first = mList.getFirstVisiblePosition();
+        for (int i = 0, count = mList.getChildCount(); i < count; i++) {
+            int listPosition = first + i;
+            int position = listPosition - headers;
+            if (mUndoAdapter != null && position >= 0) position = mUndoAdapter.toWrappedPosition(position);
+            if (position < positionStart || position >= end || position >= mAdapter.getCount()) continue;
+
+            View child = mList.getChildAt(i);
+            if (lightOnly && mAdapter instanceof SuperAdapter && !SuperAdapter.isBoundLight(child)) continue;
+            if (listAdapter.getView(listPosition, child, mList) != child) {
+                // The adapter didn't reuse the row, only a full rebind can put the new view in place
+                mList.invalidateViews();
+                return;
+            }
+        }
+    }
+
+    private void flushAdapterUpdates() {
+        synchronized (mPendingUpdates) {
+            mRunningUpdates.addAll(mPendingUpdates);
+            mPendingUpdates.clear();
+            mUpdatesPosted = false;
+        }
+        try {
+            for (int i = 0, size = mRunningUpdates.size(); i < size; i++) {
+                mRunningUpdates.get(i).run();
+            }
+        } finally {
+            mRunningUpdates.clear();
+        }
+        if (mAdapter instanceof BaseAdapter) {
+            ((BaseAdapter) mAdapter).notifyDataSetChanged();
+        }
+    }
+
+    private int contentState() {
+        ListAdapter adapter = mList.getAdapter();
+        return adapter == null || adapter.getCount() == 0 ? STATE_EMPTY : STATE_CONTENT;
+    }
+
+    /**
+     * @return what the list shows, one of the STATE_ constants
+     */
+    public int getState() {
+        if (mState == STATE_CONTENT || mState == STATE_EMPTY) {
+            if (mPtrLayout.isRefreshing()) return STATE_REFRESHING;
+            if (mMoreProgressWanted) return STATE_LOADING_MORE;
+        }
+        return mState;
+    }
+
+    /**
+     * Set the listener notified when the state changes
+     * @param listener
+     */
+    public void setOnStateChangedListener(OnStateChangedListener listener) {
+        mOnStateChangedListener = listener;
+    }
+
+    /**
+     * Show the empty view, if any, for a failed loading. Left for the content or empty state
+     * on the next adapter change
+     */
+    public void showError() {
+        mDeferProgress = false;
+        setState(STATE_ERROR);
+    }
+
+    /**
+     * Show or hide the refresh indicator
+     * @param refreshing
+     */
+    public void setRefreshing(boolean refreshing) {
+        if (setRefreshingQuietly(refreshing)) notifyStateChanged();
+    }
+
+    private boolean setRefreshingQuietly(boolean refreshing) {
+        // The layout sets itself refreshing when pulled, ask it rather than mirroring
+        if (mPtrLayout.isRefreshing() == refreshing) return false;
+        mPtrLayout.setRefreshing(refreshing);
+        return true;
+    }
+
+    private void setState(int state) {
+        mState = state;
+        applyState();
+    }
+
+    /**
+     * Apply the visibilities of the current state, only touching the views that change,
+     * each change requests a layout
+     */
+    private void applyState() {
+        Tracing.beginSection("SuperListview#applyState");
+        try {
+            boolean hasEmpty = mEmptyId != 0;
+            boolean showEmpty = hasEmpty && (mState == STATE_EMPTY || mState == STATE_ERROR);
+            boolean showProgress = mState == STATE_LOADING && !mDeferProgress;
+            boolean showList = mState != STATE_LOADING && !showEmpty && !mListHidden;
+            boolean showMore = mMoreProgressWanted && mMoreProgressId != 0;
+
+            // GONE rather than INVISIBLE for the stubs, that would inflate them
+            mProgressVisibility = applyVisibility(mProgress, mProgressVisibility, showProgress ? View.VISIBLE : View.GONE);
+            if (hasEmpty) {
+                mEmptyVisibility = applyVisibility(mEmpty, mEmptyVisibility, showEmpty ? View.VISIBLE : View.GONE);
+            }
+            if (mListVisibility != View.INVISIBLE || showList) {
+                // Leave the list of the default layout invisible until there is something to show
+                mListVisibility = applyVisibility(mList, mListVisibility, showList ? View.VISIBLE : View.GONE);
+            }
+            mMoreProgressVisibility = applyVisibility(mMoreProgress, mMoreProgressVisibility, showMore ? View.VISIBLE : View.GONE);
+            notifyStateChanged();
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    private static int applyVisibility(View view, int current, int visibility) {
+        if (current != visibility) view.setVisibility(visibility);
+        return visibility;
+    }
+
+    private void notifyStateChanged() {
+        int state = getState();
+        if (state != mNotifiedState) {
+            mNotifiedState = state;
+            if (mOnStateChangedListener != null) mOnStateChangedListener.onStateChanged(state);
+        }
+    }
+
+    /**
+     * @param adapter The adapter given to {@link #setAdapter(ListAdapter)}
+     * @return the adapter to set on the list
+     */
+    protected ListAdapter wrapAdapter(ListAdapter adapter) {
+        // The previous adapter stops recording
+        if (mInstrumentedAdapter != null) mInstrumentedAdapter.setStats(null);
+        mInstrumentedAdapter = null;
+        mUndoAdapter = null;
+        if (adapter == null) {
+            return null;
+        }
+        // Only the wrappers of the options turned on, the list gets the adapter itself otherwise
+        ListAdapter wrapped = adapter;
+        if (mLatencyStats != null) {
+            mInstrumentedAdapter = new InstrumentedListAdapter(adapter, JankTracker.SYSTEM_CLOCK);
+            mInstrumentedAdapter.setStats(mLatencyStats);
+            wrapped = mInstrumentedAdapter;
+        }
+        if (mUndoTimeout >= 0) {
+            mUndoAdapter = new DismissUndoAdapter(wrapped);
+            wrapped = mUndoAdapter;
+        }
+        return wrapped;
+    }
+
+    /**
+     * Set the adapter on the list again after an option added or removed a wrapper, keeping the
+     * scroll position. The hidden dismissed items are committed first
+     */
+    private void rewrapAdapter() {
+        if (mAdapter == null) {
+            return;
+        }
+        commitDismissedItems();
+        int position = mList.getFirstVisiblePosition();
+        View first = mList.getChildAt(0);
+        int top = first != null ? first.getTop() : 0;
+        boolean rowsTaken = takeRows();
+        mList.setAdapter(wrapAdapter(mAdapter));
+        recycleRows(mAdapter, rowsTaken);
+        restoreScrollPosition(position, top);
+    }
+
+    /**
+     * Build the callbacks given to the swipe to dismiss touch listener.
+     * With an undo timeout, dismissed items are only hidden and the listener is called with all of
+     * them at once when the timeout expires, when the list scrolls, or on {@link #commitDismissedItems()}.
+     * {@link #undoDismiss()} shows them back until then. Turning the undo timeout on or off sets the
+     * adapter of the list again, wrapped or not.
+     * @param listener
+     * @param autoRemove  Remove the dismissed items from the adapter
+     * @param undoTimeout Time in ms the dismissed items can be restored, negative to remove them right away.
+     *                    The adapter must have stable ids to follow the hidden items across data changes
+     */
+    protected SwipeDismissListViewTouchListener.AbsListDismissCallbacks makeDismissCallbacks(
+            final SwipeDismissListViewTouchListener.AbsListDismissCallbacks listener, final boolean autoRemove,
+            long undoTimeout) {
+        if (undoTimeout >= 0) requireStableIds(mAdapter);
+        commitDismissedItems();
+        mUndoTimeout = undoTimeout;
+        mUndoCallbacks = listener;
+        mUndoAutoRemove = autoRemove;
+        if ((undoTimeout >= 0) != (mUndoAdapter != null)) {
+            rewrapAdapter();
+        }
+
+        return new SwipeDismissListViewTouchListener.AbsListDismissCallbacks() {
             @Override
-            public void onChanged() {
-                super.onChanged();
-                mProgress.setVisibility(View.GONE);
-                isLoadingMore = false;
-                mPtrLayout.setRefreshing(false);
-                if (mList.getAdapter().getCount() == 0 && mEmptyId != 0) {
-                    mEmpty.setVisibility(View.VISIBLE);
-                } else if (mEmptyId != 0) {
-                    mEmpty.setVisibility(View.GONE);
+            public boolean canDismiss(int position) {
+                return listener.canDismiss(mUndoAdapter != null ? mUndoAdapter.toWrappedPosition(position) : position);
+            }
+
+            @Override
+            public void onDismiss(AbsListView listView, int[] reverseSortedPositions) {
+                if (mUndoTimeout >= 0 && mUndoAdapter != null) {
+                    mUndoAdapter.hide(reverseSortedPositions);
+                    removeCallbacks(mCommitDismissed);
+                    postDelayed(mCommitDismissed, mUndoTimeout);
+                    return;
+                }
+                if (autoRemove) {
+                    removeDismissedItems(reverseSortedPositions);
                 }
+                listener.onDismiss(listView, reverseSortedPositions);
             }
-        });
-        if ((adapter == null || adapter.getCount() == 0) && mEmptyId != 0) {
-            mEmpty.setVisibility(View.VISIBLE);
+        };
+    }
+
+    /**
+     * Remove the items dismissed with an undo timeout now, with a single call to the dismiss listener
+     */
+    public void commitDismissedItems() {
+        removeCallbacks(mCommitDismissed);
+        if (mUndoAdapter == null || !mUndoAdapter.hasHiddenItems()) {
+            return;
+        }
+        DismissUndoAdapter undoAdapter = mUndoAdapter;
+        ListAdapter adapter = undoAdapter.getWrappedAdapter();
+        int count = adapter.getCount();
+        int[] reverseSortedPositions = undoAdapter.takeHiddenPositions();
+        if (mUndoAutoRemove) {
+            removeDismissedItems(reverseSortedPositions);
+        }
+        mUndoCallbacks.onDismiss(mList, reverseSortedPositions);
+        // The listener didn't remove them, the rows are shown again
+        if (adapter.getCount() == count) {
+            undoAdapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Without stable ids the items hidden by the undo window can't be found again after a data change
+     * @param adapter
+     */
+    private static void requireStableIds(ListAdapter adapter) {
+        if (adapter != null && !adapter.hasStableIds()) {
+            throw new IllegalStateException("An undo timeout needs an adapter with stable ids");
+        }
+    }
+
+    /**
+     * Show back the items dismissed with an undo timeout
+     * @return false if there was nothing to restore
+     */
+    public boolean undoDismiss() {
+        removeCallbacks(mCommitDismissed);
+        if (mUndoAdapter == null || !mUndoAdapter.hasHiddenItems()) {
+            return false;
+        }
+        mUndoAdapter.showHiddenItems();
+        return true;
+    }
+
+    /**
+     * Remove the dismissed positions from the adapter with a single notification.
+     * Works with a {@link RemovableAdapter} or an {@link ArrayAdapter}
+     * @param reverseSortedPositions
+     */
+    @SuppressWarnings("unchecked")
+    public void removeDismissedItems(int[] reverseSortedPositions) {
+        ListAdapter adapter = getAdapter();
+        if (adapter instanceof RemovableAdapter) {
+            ((RemovableAdapter) adapter).removeItems(reverseSortedPositions);
+        } else if (adapter instanceof ArrayAdapter) {
+            ArrayAdapter<Object> arrayAdapter = (ArrayAdapter<Object>) adapter;
+            // ArrayAdapter.remove is a lookup and a shift per item, rebuild the content in one pass instead
+            int count = arrayAdapter.getCount();
+            ArrayList<Object> kept = new ArrayList<Object>(count);
+            int next = reverseSortedPositions.length - 1;
+            for (int i = 0; i < count; i++) {
+                if (next >= 0 && reverseSortedPositions[next] == i) {
+                    next--;
+                    continue;
+                }
+                kept.add(arrayAdapter.getItem(i));
+            }
+            arrayAdapter.setNotifyOnChange(false);
+            arrayAdapter.clear();
+            for (Object item : kept) {
+                arrayAdapter.add(item);
+            }
+            arrayAdapter.notifyDataSetChanged();
+        } else {
+            throw new IllegalStateException("Auto remove needs an ArrayAdapter or a RemovableAdapter");
         }
     }
 
@@ -171,27 +902,31 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
      * Show the progressbar
      */
     public void showProgress() {
-        hideList();
-        if(mEmptyId != 0 ) mEmpty.setVisibility(View.INVISIBLE);
-        mProgress.setVisibility(View.VISIBLE);
+        mDeferProgress = false;
+        setState(STATE_LOADING);
     }
 
     /**
      * Hide the progressbar and show the listview
      */
     public void showList() {
-        hideProgress();
-        mList.setVisibility(View.VISIBLE);
+        mDeferProgress = false;
+        mListHidden = false;
+        setState(STATE_CONTENT);
     }
 
     public void showMoreProgress() {
-        mMoreProgress.setVisibility(View.VISIBLE);
-
+        if (!mMoreProgressWanted) {
+            mMoreProgressWanted = true;
+            applyState();
+        }
     }
 
     public void hideMoreProgress() {
-        mMoreProgress.setVisibility(View.GONE);
-
+        if (mMoreProgressWanted) {
+            mMoreProgressWanted = false;
+            applyState();
+        }
     }
 
     /**
@@ -200,7 +935,8 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
      */
     public void setRefreshListener(SwipeRefreshLayout.OnRefreshListener listener) {
         mPtrLayout.setEnabled(true);
-        mPtrLayout.setOnRefreshListener(listener);
+        mOnRefreshListener = listener;
+        mPtrLayout.setOnRefreshListener(mRefreshListener);
     }
 
     /**
@@ -218,14 +954,18 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
      * Hide the progressbar
      */
     public void hideProgress() {
-        mProgress.setVisibility(View.GONE);
+        mDeferProgress = false;
+        if (mState == STATE_LOADING) setState(contentState());
     }
 
     /**
      * Hide the listview
      */
     public void hideList() {
-        mList.setVisibility(View.GONE);
+        if (!mListHidden) {
+            mListHidden = true;
+            applyState();
+        }
     }
 
     /**
@@ -249,7 +989,7 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
      * @return the listview adapter
      */
     public android.widget.ListAdapter getAdapter() {
-        return mList.getAdapter();
+        return mAdapter;
     }
 
     private int getFirstVisiblePosition() {
@@ -258,6 +998,31 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
 
     @Override
     public void onScrollStateChanged(AbsListView view, int scrollState) {
+        if (mJankTracker != null) {
+            if (scrollState == SCROLL_STATE_IDLE) mJankTracker.endSession();
+            else mJankTracker.startSession();
+        }
+        // A fling caught by a touch keeps the light binds until the list settles, rebinding between
+        // the fling and the drag would stall the frame the finger lands on
+        if (mAdapter instanceof FlingAwareAdapter) {
+            if (!mFlinging && scrollState == SCROLL_STATE_FLING) {
+                mFlinging = true;
+                ((FlingAwareAdapter) mAdapter).setFlinging(true);
+            } else if (mFlinging && scrollState == SCROLL_STATE_IDLE) {
+                mFlinging = false;
+                ((FlingAwareAdapter) mAdapter).setFlinging(false);
+                // The rows shown during the fling only got a light bind
+                rebindVisibleRows(0, Integer.MAX_VALUE, true);
+            }
+        }
+        if (scrollState == SCROLL_STATE_IDLE) {
+            mLoadMorePolicy.onScrollIdle();
+            if (mPreInflater != null) mPreInflater.start();
+        } else {
+            commitDismissedItems();
+            // Leave the executor and the UI thread to the scroll
+            if (mPreInflater != null) mPreInflater.cancel();
+        }
         if(mOnScrollListener != null) mOnScrollListener.onScrollStateChanged(view, scrollState);
     }
 
@@ -275,33 +1040,152 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
         mOnMoreListener = onMoreListener;
     }
 
+    /**
+     * Minimum number of items left when more items are asked.
+     * The list asks sooner when scrolling fast or when the last loads were slow, see {@link LoadMorePolicy}
+     * @param max
+     */
     public void setNumberBeforeMoreIsCalled(int max) {
         ITEM_LEFT_TO_LOAD_MORE = max;
     }
 
+    public LoadMorePolicy getLoadMorePolicy() {
+        return mLoadMorePolicy;
+    }
+
+    /**
+     * Replace the policy deciding when more items are asked
+     * @param policy
+     */
+    public void setLoadMorePolicy(LoadMorePolicy policy) {
+        mLoadMorePolicy = policy;
+    }
+
+    /**
+     * Let the list load its own pages. Pages are fetched on a shared background executor
+     * and added to the adapter on the next frame, the more progress and the loading more
+     * flag are handled by the returned engine.
+     * The adapter is set on the list once the first page is loaded.
+     * Replaces the current More and Previous listeners
+     * @param dataSource Called on a background thread to fetch the pages
+     * @param adapter    Adapter receiving the pages
+     * @param pageSize   Number of items in a full page
+     * @return the engine, to refresh or retry the loading
+     */
+    public <T> PagingEngine<T> setupPaging(PagedDataSource<T> dataSource, PagedAdapter<T> adapter, int pageSize) {
+        PagingEngine<T> engine = new PagingEngine<T>(this, dataSource, adapter, pageSize);
+        mOnMoreListener = engine;
+        mOnPreviousListener = engine;
+        engine.refresh();
+        return engine;
+    }
+
     public boolean isLoadingMore() {
         return isLoadingMore;
     }
 
     /**
-     * Enable/Disable the More event
+     * Enable/Disable the More event. Once disabled, it is enabled again when the adapter gets more items
+     * or when this is called with false
      * @param isLoadingMore
      */
     public void setLoadingMore(boolean isLoadingMore) {
         this.isLoadingMore = isLoadingMore;
+        if (isLoadingMore) mCountAtLoadMore = mList.getAdapter() != null ? mList.getAdapter().getCount() : 0;
+    }
+
+    /**
+     * Stop sending the More event, and showing the more progress, while there is nothing left to load.
+     * Unlike {@link #setLoadingMore(boolean)} adapter changes don't enable it again, call this with
+     * false or set a new adapter
+     * @param exhausted
+     */
+    public void setMoreExhausted(boolean exhausted) {
+        mMoreExhausted = exhausted;
+        if (exhausted) hideMoreProgress();
+    }
+
+    public boolean isMoreExhausted() {
+        return mMoreExhausted;
+    }
+
+    /**
+     * Sets the Previous listener, called when the list is scrolled close to its first item
+     * @param onPreviousListener
+     */
+    public void setOnPreviousListener(OnPreviousListener onPreviousListener) {
+        mOnPreviousListener = onPreviousListener;
+    }
+
+    public boolean isLoadingPrevious() {
+        return isLoadingPrevious;
+    }
+
+    /**
+     * Enable/Disable the Previous event
+     * @param isLoadingPrevious
+     */
+    public void setLoadingPrevious(boolean isLoadingPrevious) {
+        this.isLoadingPrevious = isLoadingPrevious;
+    }
+
+    /**
+     * Scroll to a position without animation, keeping the item at the given top, relative to the list.
+     * Used to keep the visible items in place when items are added or removed above them
+     * @param position
+     * @param top
+     */
+    public void restoreScrollPosition(int position, int top) {
+        mList.setSelection(position);
+    }
+
+    /**
+     * @return the number of items on a row, 1 but for grids
+     */
+    protected int getItemsPerRow() {
+        return 1;
     }
 
     @Override
     public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
                          int totalItemCount) {
-        if (((totalItemCount - firstVisibleItem - visibleItemCount) == ITEM_LEFT_TO_LOAD_MORE || (totalItemCount - firstVisibleItem - visibleItemCount) == 0 && totalItemCount > visibleItemCount) && !isLoadingMore) {
+        long now = SystemClock.uptimeMillis();
+        mLoadMorePolicy.onScroll(now, firstVisibleItem);
+        if (mAdapter instanceof SparsePagedAdapter && visibleItemCount > 0) {
+            updateVisibleRange(firstVisibleItem, visibleItemCount);
+        }
+        if (mMoreTriggerTime != 0) {
+            // Stalled while the last item is on screen and the more progress shows
+            boolean stalled = mMoreProgressWanted && firstVisibleItem + visibleItemCount >= totalItemCount;
+            if (stalled && mMoreStallStart == 0) {
+                mMoreStallStart = now;
+            } else if (!stalled && mMoreStallStart != 0) {
+                mMoreStall += now - mMoreStallStart;
+                mMoreStallStart = 0;
+            }
+        }
+        if (!isLoadingMore && !mMoreExhausted && mLoadMorePolicy.shouldLoadMore(ITEM_LEFT_TO_LOAD_MORE, firstVisibleItem, visibleItemCount, totalItemCount)) {
             isLoadingMore = true;
+            mCountAtLoadMore = totalItemCount;
             if (mOnMoreListener != null) {
-                mMoreProgress.setVisibility(View.VISIBLE);
-                mOnMoreListener.onMoreAsked(mList.getAdapter().getCount(), ITEM_LEFT_TO_LOAD_MORE, firstVisibleItem);
+                mLoadMorePolicy.onLoadStarted(now);
+                if (mLoadMoreMetricsListener != null) {
+                    startLoadMoreCycle(now, totalItemCount - firstVisibleItem - visibleItemCount, totalItemCount);
+                }
+                showMoreProgress();
+                Tracing.beginSection("SuperListview#onMoreAsked");
+                try {
+                    mOnMoreListener.onMoreAsked(mList.getAdapter().getCount(), ITEM_LEFT_TO_LOAD_MORE, firstVisibleItem);
+                } finally {
+                    Tracing.endSection();
+                }
 
             }
         }
+        if (mOnPreviousListener != null && !isLoadingPrevious && visibleItemCount > 0 && firstVisibleItem <= ITEM_LEFT_TO_LOAD_MORE) {
+            isLoadingPrevious = true;
+            mOnPreviousListener.onPreviousAsked(mList.getAdapter().getCount(), ITEM_LEFT_TO_LOAD_MORE, firstVisibleItem);
+        }
         if(mOnScrollListener != null) mOnScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
     }
 
@@ -312,8 +1196,45 @@ public abstract class BaseSuperAbsListview extends FrameLayout implements AbsLis
         mOnMoreListener = null;
     }
 
+    /**
+     * Remove the previousListener
+     */
+    public void removePreviousListener() {
+        mOnPreviousListener = null;
+    }
+
 
     public void setOnTouchListener(OnTouchListener listener) {
         mList.setOnTouchListener(listener);
     }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        if (mAdapter != null) {
+            // Changes made while detached weren't observed
+            setObservedAdapter(mAdapter);
+            if (mState == STATE_CONTENT || mState == STATE_EMPTY) setState(contentState());
+        }
+        if (mPreInflater != null) mPreInflater.start();
+        if (mDeferProgress) {
+            mDeferProgress = false;
+            applyState();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        commitDismissedItems();
+        mAttached = false;
+        setObservedAdapter(mAdapter);
+        if (mPreInflater != null) mPreInflater.cancel();
+        if (mJankTracker != null) mJankTracker.endSession();
+        if (mChangePosted) {
+            mChangePosted = false;
+            removeCallbacks(mApplyChange);
+        }
+        super.onDetachedFromWindow();
+    }
 }
@@ -0,0 +1,34 @@
+package org.notlocalhost.superlistview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * Frames reported by the Choreographer, with their vsync time
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class ChoreographerFrameSource implements JankTracker.FrameSource, Choreographer.FrameCallback {
+
+    private JankTracker mTracker;
+
+    @Override
+    public void start(JankTracker tracker) {
+        mTracker = tracker;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void stop() {
+        mTracker = null;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mTracker != null) {
+            mTracker.onFrame(frameTimeNanos);
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
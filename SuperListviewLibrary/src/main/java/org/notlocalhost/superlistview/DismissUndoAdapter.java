@@ -0,0 +1,206 @@
+package org.notlocalhost.superlistview;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListAdapter;
+import android.widget.WrapperListAdapter;
+
+/**
+ * Wraps the adapter of the list and hides the dismissed positions until they are committed or
+ * restored. The wrapped adapter isn't changed while items are hidden.
+ * Only installed while an undo timeout is set.
+ */
+class DismissUndoAdapter extends BaseAdapter implements WrapperListAdapter {
+
+    private final ListAdapter mAdapter;
+
+    // Hidden positions in the wrapped adapter, sorted in ascending order, and their ids
+    private int[]  mHidden    = new int[4];
+    private long[] mHiddenIds = new long[4];
+    private int    mHiddenCount;
+    private int    mObserverCount;
+
+    private final DataSetObserver mObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            // The hidden positions moved with the data, find them again before anyone reads them
+            relocateHiddenItems();
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            mHiddenCount = 0;
+            notifyDataSetInvalidated();
+        }
+    };
+
+    DismissUndoAdapter(ListAdapter adapter) {
+        mAdapter = adapter;
+    }
+
+    @Override
+    public ListAdapter getWrappedAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * Hide positions of this adapter, with a single notification
+     * @param positions
+     */
+    void hide(int[] positions) {
+        // Map every position before the hidden ones move
+        int[] wrapped = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            wrapped[i] = toWrappedPosition(positions[i]);
+        }
+        for (int position : wrapped) {
+            if (mHiddenCount == mHidden.length) {
+                int[] hidden = new int[mHidden.length * 2];
+                System.arraycopy(mHidden, 0, hidden, 0, mHiddenCount);
+                mHidden = hidden;
+                long[] ids = new long[mHidden.length];
+                System.arraycopy(mHiddenIds, 0, ids, 0, mHiddenCount);
+                mHiddenIds = ids;
+            }
+            int index = mHiddenCount;
+            while (index > 0 && mHidden[index - 1] > position) {
+                mHidden[index] = mHidden[index - 1];
+                mHiddenIds[index] = mHiddenIds[index - 1];
+                index--;
+            }
+            mHidden[index] = position;
+            mHiddenIds[index] = mAdapter.getItemId(position);
+            mHiddenCount++;
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Called when the wrapped adapter changed while items are hidden. With stable ids the hidden
+     * items are found again by id, the ones gone from the adapter are forgotten. The list refuses an
+     * undo timeout without stable ids, should the adapter stop having them the hidden items are shown
+     * again rather than committing the wrong positions later.
+     */
+    private void relocateHiddenItems() {
+        if (mHiddenCount == 0) {
+            return;
+        }
+        if (!mAdapter.hasStableIds()) {
+            mHiddenCount = 0;
+            return;
+        }
+        // Collect the positions in ascending order, keeping each id matched once
+        int found = 0;
+        for (int position = 0, count = mAdapter.getCount(); position < count && found < mHiddenCount; position++) {
+            long id = mAdapter.getItemId(position);
+            for (int i = found; i < mHiddenCount; i++) {
+                if (mHiddenIds[i] == id) {
+                    mHiddenIds[i] = mHiddenIds[found];
+                    mHiddenIds[found] = id;
+                    mHidden[found] = position;
+                    found++;
+                    break;
+                }
+            }
+        }
+        mHiddenCount = found;
+    }
+
+    boolean hasHiddenItems() {
+        return mHiddenCount > 0;
+    }
+
+    /**
+     * Stop hiding, without notification: the caller changes the wrapped adapter right after, or
+     * notifies when it didn't
+     * @return the hidden positions of the wrapped adapter, sorted in descending order
+     */
+    int[] takeHiddenPositions() {
+        int[] positions = new int[mHiddenCount];
+        for (int i = 0; i < mHiddenCount; i++) {
+            positions[i] = mHidden[mHiddenCount - 1 - i];
+        }
+        mHiddenCount = 0;
+        return positions;
+    }
+
+    /**
+     * Show the hidden items again
+     */
+    void showHiddenItems() {
+        mHiddenCount = 0;
+        notifyDataSetChanged();
+    }
+
+    int toWrappedPosition(int position) {
+        for (int i = 0; i < mHiddenCount && mHidden[i] <= position; i++) {
+            position++;
+        }
+        return position;
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+        super.registerDataSetObserver(observer);
+        // Only listen to the wrapped adapter while someone listens to this one
+        if (mObserverCount++ == 0) {
+            mAdapter.registerDataSetObserver(mObserver);
+        }
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        super.unregisterDataSetObserver(observer);
+        if (--mObserverCount == 0) {
+            mAdapter.unregisterDataSetObserver(mObserver);
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return mAdapter.getCount() - mHiddenCount;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return mAdapter.getItem(toWrappedPosition(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mAdapter.getItemId(toWrappedPosition(position));
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mAdapter.hasStableIds();
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return mAdapter.getView(toWrappedPosition(position), convertView, parent);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mAdapter.getItemViewType(toWrappedPosition(position));
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return mAdapter.getViewTypeCount();
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return mAdapter.areAllItemsEnabled();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return mAdapter.isEnabled(toWrappedPosition(position));
+    }
+}
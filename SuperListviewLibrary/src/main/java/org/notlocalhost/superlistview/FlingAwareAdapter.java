@@ -0,0 +1,14 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Adapter binding a light version of its rows while the list is flung, skipping images, rich text
+ * and anything slow to bind. The list rebinds the visible rows in place once the fling ends.
+ */
+public interface FlingAwareAdapter {
+    /**
+     * Called by the list when a fling starts, and when the list is idle again, before the visible
+     * rows are rebound. A drag catching the fling doesn't end it
+     * @param flinging
+     */
+    public void setFlinging(boolean flinging);
+}
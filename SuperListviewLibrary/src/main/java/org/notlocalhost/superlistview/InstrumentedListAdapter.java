@@ -0,0 +1,113 @@
+package org.notlocalhost.superlistview;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ListAdapter;
+import android.widget.WrapperListAdapter;
+
+/**
+ * Wraps the adapter of the list and records its row latencies in an {@link AdapterLatencyStats}.
+ * Only installed while the latencies are recorded.
+ * A {@link SuperAdapter} times its create and bind steps itself, other adapters are timed a whole
+ * getView at a time. Everything else goes straight to the wrapped adapter.
+ */
+class InstrumentedListAdapter implements WrapperListAdapter {
+
+    private final ListAdapter       mAdapter;
+    private final JankTracker.Clock mClock;
+    // Times its own steps, see SuperAdapter#getView
+    private final boolean           mStepTimed;
+
+    private AdapterLatencyStats mStats;
+
+    InstrumentedListAdapter(ListAdapter adapter, JankTracker.Clock clock) {
+        mAdapter = adapter;
+        mClock = clock;
+        mStepTimed = adapter instanceof SuperAdapter;
+    }
+
+    /**
+     * @param stats Where to record, null to stop recording
+     */
+    void setStats(AdapterLatencyStats stats) {
+        mStats = stats;
+        if (mStepTimed) {
+            ((SuperAdapter<?>) mAdapter).setLatencyStats(stats, mClock);
+        }
+    }
+
+    @Override
+    public ListAdapter getWrappedAdapter() {
+        return mAdapter;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        if (mStats == null || mStepTimed) {
+            return mAdapter.getView(position, convertView, parent);
+        }
+        int viewType = mAdapter.getItemViewType(position);
+        long start = mClock.nanoTime();
+        View view = mAdapter.getView(position, convertView, parent);
+        mStats.record(viewType, convertView == null ? AdapterLatencyStats.KIND_GET_VIEW_NEW
+                                                    : AdapterLatencyStats.KIND_GET_VIEW_CONVERTED,
+                      mClock.nanoTime() - start);
+        return view;
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+        mAdapter.registerDataSetObserver(observer);
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        mAdapter.unregisterDataSetObserver(observer);
+    }
+
+    @Override
+    public int getCount() {
+        return mAdapter.getCount();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return mAdapter.getItem(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mAdapter.getItemId(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mAdapter.hasStableIds();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mAdapter.getItemViewType(position);
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return mAdapter.getViewTypeCount();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mAdapter.isEmpty();
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return mAdapter.areAllItemsEnabled();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return mAdapter.isEnabled(position);
+    }
+}
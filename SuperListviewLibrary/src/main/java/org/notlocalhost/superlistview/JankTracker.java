@@ -0,0 +1,140 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Measures the intervals between frames during a scroll session and counts the janky and dropped
+ * frames. Frames come from a {@link FrameSource} and time from a {@link Clock}, both can be faked
+ * to drive the tracker outside of Android.
+ * Must be used on a single thread, the UI thread for the frame sources of the library.
+ */
+public class JankTracker {
+
+    public interface Clock {
+        public long nanoTime();
+    }
+
+    /**
+     * Calls {@link JankTracker#onFrame(long)} on every frame between start and stop
+     */
+    public interface FrameSource {
+        public void start(JankTracker tracker);
+
+        public void stop();
+    }
+
+    public interface OnScrollMetricsListener {
+        /**
+         * Called when a scroll session ends
+         * @param tag     Tag of the list
+         * @param metrics
+         */
+        public void onScrollMetrics(String tag, ScrollMetrics metrics);
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    public static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667L;
+
+    private final FrameSource mFrameSource;
+    private final Clock       mClock;
+
+    private String                  mTag;
+    private OnScrollMetricsListener mListener;
+    private long                    mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
+    private boolean mTracking;
+    private long    mStartNanos;
+    private long    mLastFrameNanos;
+    private int     mFrames;
+    private int     mJankyFrames;
+    private int     mDroppedFrames;
+    private long    mMaxIntervalNanos;
+
+    public JankTracker(FrameSource frameSource, Clock clock) {
+        mFrameSource = frameSource;
+        mClock = clock;
+    }
+
+    /**
+     * @param tag      Passed to the listener, to tell the lists apart
+     * @param listener
+     */
+    public void setOnScrollMetricsListener(String tag, OnScrollMetricsListener listener) {
+        mTag = tag;
+        mListener = listener;
+    }
+
+    /**
+     * Set the expected interval between frames, 60fps by default
+     * @param frameIntervalNanos
+     */
+    public void setFrameIntervalNanos(long frameIntervalNanos) {
+        if (frameIntervalNanos <= 0)
+            throw new IllegalArgumentException("frameIntervalNanos must be positive");
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    public boolean isTracking() {
+        return mTracking;
+    }
+
+    /**
+     * Start a session, does nothing if one is running
+     */
+    public void startSession() {
+        if (mTracking) {
+            return;
+        }
+        mTracking = true;
+        mStartNanos = mClock.nanoTime();
+        mLastFrameNanos = 0;
+        mFrames = 0;
+        mJankyFrames = 0;
+        mDroppedFrames = 0;
+        mMaxIntervalNanos = 0;
+        mFrameSource.start(this);
+    }
+
+    /**
+     * Record a frame
+     * @param frameTimeNanos Time of the frame, in the frame source's time base
+     */
+    public void onFrame(long frameTimeNanos) {
+        if (!mTracking) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            long interval = frameTimeNanos - mLastFrameNanos;
+            mFrames++;
+            if (interval > mMaxIntervalNanos) {
+                mMaxIntervalNanos = interval;
+            }
+            // Vsyncs missed, rounded so a late vsync doesn't count as a dropped frame
+            int missed = (int) ((interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos) - 1;
+            if (missed > 0) {
+                mJankyFrames++;
+                mDroppedFrames += missed;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+    }
+
+    /**
+     * End the session and report it, does nothing if none is running
+     */
+    public void endSession() {
+        if (!mTracking) {
+            return;
+        }
+        mTracking = false;
+        mFrameSource.stop();
+        if (mListener != null && mFrames > 0) {
+            mListener.onScrollMetrics(mTag, new ScrollMetrics(mFrames, mJankyFrames, mDroppedFrames,
+                    mMaxIntervalNanos, mClock.nanoTime() - mStartNanos));
+        }
+    }
+}
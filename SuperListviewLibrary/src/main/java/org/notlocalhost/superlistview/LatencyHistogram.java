@@ -0,0 +1,96 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Histogram of durations with fixed, doubling buckets from 50us to 102ms and an overflow bucket.
+ * Recording doesn't allocate. Not thread safe.
+ */
+public final class LatencyHistogram {
+
+    private static final long FIRST_BOUND_NANOS = 50000L;
+    private static final int  BUCKETS           = 13;
+
+    // Upper bounds (inclusive) of the buckets, the last one has none
+    private static final long[] BOUNDS = new long[BUCKETS - 1];
+
+    static {
+        long bound = FIRST_BOUND_NANOS;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS[i] = bound;
+            bound *= 2;
+        }
+    }
+
+    private final long[] mCounts = new long[BUCKETS];
+    private long mCount;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+        mCounts[bucket]++;
+        mCount++;
+        mTotalNanos += nanos;
+        if (nanos > mMaxNanos) {
+            mMaxNanos = nanos;
+        }
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    public long getMeanNanos() {
+        return mCount == 0 ? 0 : mTotalNanos / mCount;
+    }
+
+    public int getBucketCount() {
+        return BUCKETS;
+    }
+
+    public long getBucket(int bucket) {
+        return mCounts[bucket];
+    }
+
+    /**
+     * @param bucket
+     * @return the upper bound of the bucket, Long.MAX_VALUE for the overflow bucket
+     */
+    public long getBucketUpperBoundNanos(int bucket) {
+        return bucket < BOUNDS.length ? BOUNDS[bucket] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return the upper bound of the bucket holding that percentile, the max for the overflow bucket
+     */
+    public long getPercentileNanos(float percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(mCount * percentile / 100f);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += mCounts[i];
+            if (seen >= target && mCounts[i] > 0) {
+                return Math.min(getBucketUpperBoundNanos(i), mMaxNanos);
+            }
+        }
+        return mMaxNanos;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mCounts[i] = 0;
+        }
+        mCount = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+}
@@ -0,0 +1,143 @@
+package org.notlocalhost.superlistview;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Resolved superlistview (and supergridview) attributes of a list.
+ * Resolution is cached per theme and set of attribute values, so lists inflated from the same
+ * layout only resolve their attributes once. A theme's entries are dropped when its configuration
+ * changes, the dimensions and resources may resolve differently.
+ */
+public final class ListAttributes {
+
+    // Theme -> attribute key -> attributes. Themes go away with their activity
+    private static final WeakHashMap<Resources.Theme, ThemeCache> sCache =
+            new WeakHashMap<Resources.Theme, ThemeCache>();
+
+    private static final class ThemeCache {
+        // Configuration the entries were resolved with
+        final Configuration                   configuration = new Configuration();
+        final HashMap<String, ListAttributes> attributes    = new HashMap<String, ListAttributes>();
+    }
+
+    public final boolean clipToPadding;
+    public final int     dividerColor;
+    public final float   dividerHeight;
+    public final int     padding;
+    public final int     paddingTop;
+    public final int     paddingBottom;
+    public final int     paddingLeft;
+    public final int     paddingRight;
+    public final int     scrollbarStyle;
+    public final int     emptyId;
+    public final int     moreProgressId;
+    public final int     progressId;
+    public final int     selector;
+    // 0 when not set, the list picks its default layout
+    public final int     mainLayoutId;
+    public final boolean flattenLayout;
+
+    // supergridview attributes, only resolved for grids
+    public final int     columns;
+    public final int     verticalSpacing;
+    public final int     horizontalSpacing;
+
+    private ListAttributes(Context context, AttributeSet attrs, boolean grid) {
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.superlistview);
+        try {
+            clipToPadding = a.getBoolean(R.styleable.superlistview_superlv__listClipToPadding, false);
+            dividerColor = a.getColor(R.styleable.superlistview_superlv__listDivider, 0);
+            dividerHeight = a.getDimension(R.styleable.superlistview_superlv__listDividerHeight, 0.0f);
+            padding = (int) a.getDimension(R.styleable.superlistview_superlv__listPadding, -1.0f);
+            paddingTop = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingTop, 0.0f);
+            paddingBottom = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingBottom, 0.0f);
+            paddingLeft = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingLeft, 0.0f);
+            paddingRight = (int) a.getDimension(R.styleable.superlistview_superlv__listPaddingRight, 0.0f);
+            scrollbarStyle = a.getInt(R.styleable.superlistview_superlv__scrollbarStyle, -1);
+            emptyId = a.getResourceId(R.styleable.superlistview_superlv__empty, 0);
+            moreProgressId = a.getResourceId(R.styleable.superlistview_superlv__moreProgress, R.layout.view_more_progress);
+            progressId = a.getResourceId(R.styleable.superlistview_superlv__progress, R.layout.view_progress);
+            selector = a.getResourceId(R.styleable.superlistview_superlv__listSelector, 0);
+            mainLayoutId = a.getResourceId(R.styleable.superlistview_superlv_mainLayoutID, 0);
+            flattenLayout = a.getBoolean(R.styleable.superlistview_superlv__flattenLayout, false);
+        } finally {
+            a.recycle();
+        }
+
+        if (grid) {
+            TypedArray ag = context.obtainStyledAttributes(attrs, R.styleable.supergridview);
+            try {
+                columns = ag.getInt(R.styleable.supergridview_supergv__columns, 1);
+                verticalSpacing = (int) ag.getDimension(R.styleable.supergridview_supergv__verticalSpacing, 1);
+                horizontalSpacing = (int) ag.getDimension(R.styleable.supergridview_supergv__horizontalSpacing, 1);
+            } finally {
+                ag.recycle();
+            }
+        } else {
+            columns = 1;
+            verticalSpacing = 1;
+            horizontalSpacing = 1;
+        }
+    }
+
+    /**
+     * Resolve the attributes, or get them from the cache. Must be called on the UI thread.
+     * @param context
+     * @param attrs
+     * @param grid    Resolve the supergridview attributes as well
+     */
+    public static ListAttributes obtain(Context context, AttributeSet attrs, boolean grid) {
+        Resources.Theme theme = context.getTheme();
+        Configuration configuration = context.getResources().getConfiguration();
+        ThemeCache cache = sCache.get(theme);
+        if (cache == null) {
+            cache = new ThemeCache();
+            cache.configuration.setTo(configuration);
+            sCache.put(theme, cache);
+        } else if (!cache.configuration.equals(configuration)) {
+            // A configuration change the activity handles itself keeps the theme
+            cache.attributes.clear();
+            cache.configuration.setTo(configuration);
+        }
+
+        String key = makeKey(attrs, grid);
+        ListAttributes attributes = cache.attributes.get(key);
+        if (attributes == null) {
+            attributes = new ListAttributes(context, attrs, grid);
+            cache.attributes.put(key, attributes);
+        }
+        return attributes;
+    }
+
+    /**
+     * Key made of the style and the raw values of the attributes we read, ignoring the
+     * others (id, layout params...) so the same list in different places shares the entry
+     */
+    private static String makeKey(AttributeSet attrs, boolean grid) {
+        StringBuilder key = new StringBuilder(grid ? "g" : "l");
+        if (attrs == null) {
+            return key.toString();
+        }
+        key.append(attrs.getStyleAttribute());
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            int name = attrs.getAttributeNameResource(i);
+            if (contains(R.styleable.superlistview, name) || (grid && contains(R.styleable.supergridview, name))) {
+                key.append('|').append(name).append('=').append(attrs.getAttributeValue(i));
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean contains(int[] styleable, int attr) {
+        // Styleable arrays are sorted
+        return attr != 0 && Arrays.binarySearch(styleable, attr) >= 0;
+    }
+}
@@ -0,0 +1,40 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * One load more cycle, from the list asking for more items to the adapter change ending it.
+ */
+public final class LoadMoreMetrics {
+
+    public interface OnLoadMoreMetricsListener {
+        /**
+         * Called on the UI thread when a load more cycle ends
+         * @param metrics
+         */
+        public void onLoadMoreMetrics(LoadMoreMetrics metrics);
+    }
+
+    /** Time from the trigger to the adapter change */
+    public final long latencyMillis;
+    /** Items below the screen when the list asked for more */
+    public final int  itemsLeft;
+    /** Distance from the end that triggered the load, see {@link LoadMorePolicy#getDistance(int)} */
+    public final int  prefetchDistance;
+    /** Time the user spent at the end of the list with the more progress showing */
+    public final long stallMillis;
+    /** Items added by the change, negative if items were dropped */
+    public final int  itemsAdded;
+
+    public LoadMoreMetrics(long latencyMillis, int itemsLeft, int prefetchDistance, long stallMillis, int itemsAdded) {
+        this.latencyMillis = latencyMillis;
+        this.itemsLeft = itemsLeft;
+        this.prefetchDistance = prefetchDistance;
+        this.stallMillis = stallMillis;
+        this.itemsAdded = itemsAdded;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadMoreMetrics{latencyMs=" + latencyMillis + ", itemsLeft=" + itemsLeft + ", prefetchDistance="
+                + prefetchDistance + ", stallMs=" + stallMillis + ", itemsAdded=" + itemsAdded + "}";
+    }
+}
@@ -0,0 +1,117 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Decides when the list should ask for more items.
+ * The distance to the end of the list at which loading starts grows with the scroll velocity and
+ * the time the last loads took, so the next page lands before the user reaches the bottom.
+ * The number set with {@link BaseSuperAbsListview#setNumberBeforeMoreIsCalled(int)} is the floor.
+ * Plain java, every time is given by the caller in milliseconds.
+ */
+public class LoadMorePolicy {
+
+    // Weight of the newest sample in the moving averages
+    private static final float SMOOTHING = 0.3f;
+    // Extra distance kept on top of velocity * latency
+    private static final float SAFETY_FACTOR = 1.5f;
+    // Samples older than this don't tell anything about the current velocity
+    private static final long MAX_SAMPLE_GAP = 200;
+
+    private int   mMaxDistance = 200;
+
+    private float mVelocity;        // items per millisecond, smoothed
+    private float mLatency;         // milliseconds, smoothed
+    private int   mLastFirstVisible = -1;
+    private long  mLastScrollTime;
+    private long  mLoadStartTime    = -1;
+
+    /**
+     * Upper bound of the computed distance, to avoid loading the whole source on a single fling
+     * @param maxDistance
+     */
+    public void setMaxDistance(int maxDistance) {
+        mMaxDistance = maxDistance;
+    }
+
+    /**
+     * Feed a scroll event
+     * @param now              Current time in ms
+     * @param firstVisibleItem
+     */
+    public void onScroll(long now, int firstVisibleItem) {
+        if (mLastFirstVisible >= 0 && firstVisibleItem != mLastFirstVisible) {
+            long elapsed = now - mLastScrollTime;
+            if (elapsed > 0 && elapsed < MAX_SAMPLE_GAP) {
+                // Only scrolling down brings the end of the list closer
+                float velocity = Math.max(0, firstVisibleItem - mLastFirstVisible) / (float) elapsed;
+                mVelocity += SMOOTHING * (velocity - mVelocity);
+            } else {
+                mVelocity = 0;
+            }
+        }
+        if (firstVisibleItem != mLastFirstVisible) {
+            mLastFirstVisible = firstVisibleItem;
+            mLastScrollTime = now;
+        }
+    }
+
+    /**
+     * The list stopped scrolling, velocity is back to zero
+     */
+    public void onScrollIdle() {
+        mVelocity = 0;
+    }
+
+    public void onLoadStarted(long now) {
+        mLoadStartTime = now;
+    }
+
+    /**
+     * The adapter changed after a load, record how long it took
+     * @param now
+     */
+    public void onLoadFinished(long now) {
+        if (mLoadStartTime < 0) {
+            return;
+        }
+        float latency = now - mLoadStartTime;
+        mLatency = mLatency == 0 ? latency : mLatency + SMOOTHING * (latency - mLatency);
+        mLoadStartTime = -1;
+    }
+
+    public boolean isLoadPending() {
+        return mLoadStartTime >= 0;
+    }
+
+    /**
+     * @param floor Minimum number of items left before loading more
+     * @return the number of items left under which more items are asked
+     */
+    public int getDistance(int floor) {
+        int distance = (int) Math.ceil(mVelocity * mLatency * SAFETY_FACTOR);
+        return Math.max(floor, Math.min(distance, mMaxDistance));
+    }
+
+    /**
+     * @param floor            Minimum number of items left before loading more
+     * @param firstVisibleItem
+     * @param visibleItemCount
+     * @param totalItemCount
+     * @return true if more items should be asked now
+     */
+    public boolean shouldLoadMore(int floor, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        int itemsLeft = totalItemCount - firstVisibleItem - visibleItemCount;
+        if (itemsLeft == 0) {
+            // The list isn't scrollable when everything fits on screen
+            return totalItemCount > visibleItemCount;
+        }
+        return itemsLeft > 0 && itemsLeft <= getDistance(floor);
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    public float getLatency() {
+        return mLatency;
+    }
+}
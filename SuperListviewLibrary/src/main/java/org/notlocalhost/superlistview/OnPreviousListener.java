@@ -0,0 +1,13 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Called when the list is scrolled close to its first item, to load the items above it.
+ */
+public interface OnPreviousListener {
+    /**
+     * @param numberOfItems
+     * @param numberBeforePrevious
+     * @param currentItemPos
+     */
+    public void onPreviousAsked(int numberOfItems, int numberBeforePrevious, int currentItemPos);
+}
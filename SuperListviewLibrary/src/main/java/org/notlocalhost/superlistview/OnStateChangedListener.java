@@ -0,0 +1,11 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Listener notified when what the list shows changes
+ */
+public interface OnStateChangedListener {
+    /**
+     * @param state One of the {@link BaseSuperAbsListview} STATE_ constants
+     */
+    public void onStateChanged(int state);
+}
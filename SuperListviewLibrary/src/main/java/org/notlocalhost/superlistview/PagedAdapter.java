@@ -0,0 +1,150 @@
+package org.notlocalhost.superlistview;
+
+import android.widget.BaseAdapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Adapter filled page by page by a {@link PagingEngine}.
+ * Every page change is applied to the backing list in one go and raises a single notification.
+ */
+public abstract class PagedAdapter<T> extends BaseAdapter implements RemovableAdapter {
+
+    private final ArrayList<T> mItems = new ArrayList<T>();
+
+    // Number of items in each page, in adapter order
+    private int[] mPageSizes = new int[8];
+    private int   mPageCount;
+
+    @Override
+    public int getCount() {
+        return mItems.size();
+    }
+
+    @Override
+    public T getItem(int position) {
+        return mItems.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    /**
+     * Add a page at the end of the adapter
+     * @param items
+     */
+    public void appendPage(Collection<? extends T> items) {
+        mItems.addAll(items);
+        addPageSize(mPageCount, items.size());
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Add a page at the end of the adapter and drop pages from the start, with a single notification
+     * @param items
+     * @param dropPages Number of pages to remove from the start
+     * @return the number of items removed
+     */
+    public int appendPage(Collection<? extends T> items, int dropPages) {
+        int dropped = 0;
+        for (int i = 0; i < dropPages; i++) {
+            dropped += mPageSizes[i];
+        }
+        System.arraycopy(mPageSizes, dropPages, mPageSizes, 0, mPageCount - dropPages);
+        mPageCount -= dropPages;
+        mItems.subList(0, dropped).clear();
+        mItems.addAll(items);
+        addPageSize(mPageCount, items.size());
+        notifyDataSetChanged();
+        return dropped;
+    }
+
+    /**
+     * Add a page at the start of the adapter and drop pages from the end, with a single notification
+     * @param items
+     * @param dropPages Number of pages to remove from the end
+     * @return the number of items removed
+     */
+    public int prependPage(Collection<? extends T> items, int dropPages) {
+        int dropped = 0;
+        for (int i = mPageCount - dropPages; i < mPageCount; i++) {
+            dropped += mPageSizes[i];
+        }
+        mPageCount -= dropPages;
+        mItems.subList(mItems.size() - dropped, mItems.size()).clear();
+        mItems.addAll(0, items);
+        addPageSize(0, items.size());
+        notifyDataSetChanged();
+        return dropped;
+    }
+
+    /**
+     * Replace the whole content of the adapter with a page
+     * @param items
+     */
+    public void replaceAll(Collection<? extends T> items) {
+        mItems.clear();
+        mItems.addAll(items);
+        mPageCount = 0;
+        addPageSize(0, items.size());
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return the number of pages in the adapter
+     */
+    public int getPageCount() {
+        return mPageCount;
+    }
+
+    /**
+     * @param page Index of the page in the adapter, from 0
+     * @return the number of items left in the page, smaller than the page size once items were removed
+     */
+    public int getPageItemCount(int page) {
+        return mPageSizes[page];
+    }
+
+    private void addPageSize(int index, int size) {
+        if (mPageCount == mPageSizes.length) {
+            int[] sizes = new int[mPageCount * 2];
+            System.arraycopy(mPageSizes, 0, sizes, 0, mPageCount);
+            mPageSizes = sizes;
+        }
+        System.arraycopy(mPageSizes, index, mPageSizes, index + 1, mPageCount - index);
+        mPageSizes[index] = size;
+        mPageCount++;
+    }
+
+    @Override
+    public void removeItems(int[] reverseSortedPositions) {
+        int size = mItems.size();
+        int next = reverseSortedPositions.length - 1;
+        int kept = 0;
+        int page = 0;
+        int pageEnd = mPageCount > 0 ? mPageSizes[0] : size;
+        for (int i = 0; i < size; i++) {
+            while (i >= pageEnd && page < mPageCount - 1) {
+                pageEnd += mPageSizes[++page];
+            }
+            if (next >= 0 && reverseSortedPositions[next] == i) {
+                next--;
+                // Keep the pages in step with the engine, the drops go by the items left in each
+                if (mPageCount > 0) mPageSizes[page]--;
+                continue;
+            }
+            mItems.set(kept++, mItems.get(i));
+        }
+        mItems.subList(kept, size).clear();
+        notifyDataSetChanged();
+    }
+
+    public void clear() {
+        mItems.clear();
+        mPageCount = 0;
+        notifyDataSetChanged();
+    }
+}
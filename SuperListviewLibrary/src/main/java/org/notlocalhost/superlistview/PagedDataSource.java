@@ -0,0 +1,19 @@
+package org.notlocalhost.superlistview;
+
+import java.util.List;
+
+/**
+ * Source of pages for a {@link PagingEngine}.
+ */
+public interface PagedDataSource<T> {
+    /**
+     * Fetch a page of items. Called on a background thread, never on the UI thread.
+     *
+     * @param page     Index of the page to load, starting at 0
+     * @param pageSize Number of items expected in a full page
+     * @return the items of the page. Returning less than pageSize items means there is nothing
+     * more to load
+     * @throws Exception reported to the {@link PagingEngine.OnPageErrorListener}
+     */
+    public List<T> loadPage(int page, int pageSize) throws Exception;
+}
@@ -0,0 +1,311 @@
+package org.notlocalhost.superlistview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Loads the pages of a {@link PagedDataSource} on a background executor and hands them to a
+ * {@link PagedAdapter} on the next frame. The engine drives the more progress and the
+ * loading more flag of the list it is attached to.
+ * With {@link #setMaxPages(int)} only a window of pages is kept in the adapter: pages far from
+ * the screen are dropped, and loaded again above or below when the user scrolls back.
+ * Use {@link BaseSuperAbsListview#setupPaging(PagedDataSource, PagedAdapter, int)} to create one.
+ */
+public class PagingEngine<T> implements OnMoreListener, OnPreviousListener {
+
+    public interface OnPageErrorListener {
+        /**
+         * Called on the UI thread when a page could not be loaded.
+         * Call {@link PagingEngine#retry()} to try again.
+         * @param page
+         * @param e
+         */
+        public void onPageError(int page, Exception e);
+    }
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private static final int MODE_REPLACE = 0;
+    private static final int MODE_APPEND  = 1;
+    private static final int MODE_PREPEND = 2;
+
+    private static final int MIN_PAGES = 3;
+
+    private final BaseSuperAbsListview mListview;
+    private final PagedDataSource<T>   mSource;
+    private final PagedAdapter<T>      mAdapter;
+    private final int                  mPageSize;
+
+    private Executor            mExecutor = PagingExecutor.get();
+    private OnPageErrorListener mErrorListener;
+
+    private int     mFirstPage;
+    private int     mNextPage;
+    private int     mMaxPages;
+    private boolean mLoading;
+    private boolean mExhausted;
+    private int     mGeneration;
+
+    PagingEngine(BaseSuperAbsListview listview, PagedDataSource<T> source, PagedAdapter<T> adapter, int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("pageSize must be positive");
+        mListview = listview;
+        mSource = source;
+        mAdapter = adapter;
+        mPageSize = pageSize;
+    }
+
+    /**
+     * Replace the default executor, shared by every list, used to fetch pages
+     * @param executor
+     */
+    public void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    public void setOnPageErrorListener(OnPageErrorListener listener) {
+        mErrorListener = listener;
+    }
+
+    /**
+     * Limit the number of pages kept in the adapter. 0, the default, keeps every page.
+     * The window must be large enough to hold more than a screen of items.
+     * On a grid the page size must be a multiple of the number of columns, so the rows don't
+     * shift when pages are dropped or loaded above
+     * @param maxPages At least 3
+     */
+    public void setMaxPages(int maxPages) {
+        if (maxPages != 0 && maxPages < MIN_PAGES)
+            throw new IllegalArgumentException("maxPages must be at least " + MIN_PAGES);
+        if (maxPages != 0 && mPageSize % mListview.getItemsPerRow() != 0)
+            throw new IllegalArgumentException("pageSize must be a multiple of the number of columns");
+        mMaxPages = maxPages;
+    }
+
+    /**
+     * @return the index of the first page in the adapter
+     */
+    public int getFirstPage() {
+        return mFirstPage;
+    }
+
+    public PagedAdapter<T> getAdapter() {
+        return mAdapter;
+    }
+
+    public boolean isLoading() {
+        return mLoading;
+    }
+
+    /**
+     * @return true once the source returned a page smaller than the page size
+     */
+    public boolean isExhausted() {
+        return mExhausted;
+    }
+
+    /**
+     * Load the first page again. The current items are kept until it arrives.
+     * Pending loads are dropped.
+     */
+    public void refresh() {
+        mGeneration++;
+        mLoading = false;
+        mExhausted = false;
+        load(0, MODE_REPLACE);
+    }
+
+    /**
+     * Load the page that failed last time
+     */
+    public void retry() {
+        if (!mLoading) {
+            load(mNextPage, mNextPage == 0 ? MODE_REPLACE : MODE_APPEND);
+        }
+    }
+
+    /**
+     * Drop any page being loaded and stop the more progress
+     */
+    public void cancel() {
+        mGeneration++;
+        mLoading = false;
+        mListview.hideMoreProgress();
+        mListview.cancelLoadMoreCycle();
+        mListview.setLoadingMore(false);
+        mListview.setLoadingPrevious(false);
+    }
+
+    @Override
+    public void onMoreAsked(int numberOfItems, int numberBeforeMore, int currentItemPos) {
+        if (mLoading) {
+            return;
+        }
+        if (mExhausted) {
+            // Asked by hand, the list itself doesn't ask once told it's exhausted
+            mListview.hideMoreProgress();
+            mListview.cancelLoadMoreCycle();
+            return;
+        }
+        load(mNextPage, MODE_APPEND);
+    }
+
+    @Override
+    public void onPreviousAsked(int numberOfItems, int numberBeforePrevious, int currentItemPos) {
+        // Keep the loading previous flag when on the first page, the list asks again after a data change
+        if (!mLoading && mFirstPage > 0) {
+            load(mFirstPage - 1, MODE_PREPEND);
+        }
+    }
+
+    private void load(final int page, final int mode) {
+        mLoading = true;
+        if (mListview.getState() == BaseSuperAbsListview.STATE_ERROR) {
+            mListview.showProgress();
+        }
+        if (mode == MODE_PREPEND) {
+            mListview.setLoadingPrevious(true);
+        } else {
+            mListview.setLoadingMore(true);
+            if (mListview.getAdapter() == mAdapter && mAdapter.getCount() > 0) {
+                mListview.showMoreProgress();
+            }
+        }
+
+        final int generation = mGeneration;
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    List<T> items = null;
+                    Exception error = null;
+                    try {
+                        items = mSource.loadPage(page, mPageSize);
+                    } catch (Exception e) {
+                        error = e;
+                    }
+                    deliver(generation, page, mode, items, error);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            onPageFailed(page, e);
+        }
+    }
+
+    /**
+     * Called on the background thread. Hop to the UI thread, then wait for the next frame so the
+     * adapter change is folded into the frame's layout pass.
+     */
+    private void deliver(final int generation, final int page, final int mode, final List<T> items,
+                         final Exception error) {
+        final Runnable publish = new Runnable() {
+            @Override
+            public void run() {
+                publish(generation, page, mode, items, error);
+            }
+        };
+        sMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ViewCompat.postOnAnimation(mListview, publish);
+            }
+        });
+    }
+
+    private void publish(int generation, int page, int mode, List<T> items, Exception error) {
+        if (generation != mGeneration) {
+            return;
+        }
+        mLoading = false;
+        if (error != null) {
+            onPageFailed(page, error);
+            return;
+        }
+        if (items == null) {
+            items = Collections.emptyList();
+        }
+
+        mListview.hideMoreProgress();
+        if (mListview.getAdapter() != mAdapter) {
+            mListview.setAdapter(mAdapter);
+        }
+        switch (mode) {
+            case MODE_REPLACE:
+                mFirstPage = page;
+                mNextPage = page + 1;
+                mExhausted = items.size() < mPageSize;
+                mAdapter.replaceAll(items);
+                // The new first page may hold fewer items than before, the count doesn't grow
+                mListview.setLoadingMore(false);
+                break;
+            case MODE_APPEND:
+                appendPage(page, items);
+                break;
+            case MODE_PREPEND:
+                prependPage(page, items);
+                break;
+        }
+        // So the list doesn't show the more progress only for this engine to hide it
+        mListview.setMoreExhausted(mExhausted);
+    }
+
+    private void appendPage(int page, List<T> items) {
+        mNextPage = page + 1;
+        mExhausted = items.size() < mPageSize;
+
+        int pages = 0;
+        if (mMaxPages > 0 && mNextPage - mFirstPage > mMaxPages) {
+            pages = mNextPage - mFirstPage - mMaxPages;
+            mFirstPage += pages;
+        }
+
+        if (pages == 0) {
+            mAdapter.appendPage(items);
+            return;
+        }
+        int first = mListview.getList().getFirstVisiblePosition();
+        int top = getFirstChildTop();
+        // Removed items leave the pages partial, the adapter knows how many items each one holds
+        int dropped = mAdapter.appendPage(items, pages);
+        mListview.restoreScrollPosition(Math.max(0, first - dropped), top);
+    }
+
+    private void prependPage(int page, List<T> items) {
+        int pages = 0;
+        if (mMaxPages > 0 && mNextPage - page > mMaxPages) {
+            pages = mNextPage - page - mMaxPages;
+            mNextPage -= pages;
+            mExhausted = false;
+        }
+        mFirstPage = page;
+
+        int first = mListview.getList().getFirstVisiblePosition();
+        int top = getFirstChildTop();
+        mAdapter.prependPage(items, pages);
+        mListview.restoreScrollPosition(first + items.size(), top);
+    }
+
+    private int getFirstChildTop() {
+        View child = mListview.getList().getChildAt(0);
+        return child == null ? 0 : child.getTop();
+    }
+
+    private void onPageFailed(int page, Exception e) {
+        mLoading = false;
+        // The loading flags stays up so scrolling doesn't retry in a loop, see retry()
+        mListview.hideMoreProgress();
+        if (mListview.getAdapter() != mAdapter || mAdapter.getCount() == 0) {
+            mListview.showError();
+        }
+        if (mErrorListener != null) {
+            mErrorListener.onPageError(page, e);
+        }
+    }
+}
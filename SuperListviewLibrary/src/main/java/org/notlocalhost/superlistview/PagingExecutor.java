@@ -0,0 +1,80 @@
+package org.notlocalhost.superlistview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded background executors shared by every list of the process: one for the pages, and a
+ * single thread for the rows pre-inflated while the lists are idle, so they never delay a page.
+ * Threads run at background priority and die after being idle for a while.
+ * Before API 9 core threads can't time out, the pools then have no core thread and only
+ * grow past one thread when their queue is full.
+ */
+final class PagingExecutor {
+
+    private static final int POOL_SIZE                  = 2;
+    private static final int QUEUE_CAPACITY             = 32;
+    private static final int PRE_INFLATE_QUEUE_CAPACITY = 8;
+    private static final int KEEP_ALIVE                 = 30;
+
+    private static Executor sExecutor;
+    private static Executor sPreInflateExecutor;
+
+    private PagingExecutor() {
+    }
+
+    static synchronized Executor get() {
+        if (sExecutor == null) {
+            sExecutor = newExecutor("SuperListview #", POOL_SIZE, QUEUE_CAPACITY,
+                                    Process.THREAD_PRIORITY_BACKGROUND);
+        }
+        return sExecutor;
+    }
+
+    /**
+     * @return the executor of the pre-inflated rows, a single thread at the lowest priority
+     */
+    static synchronized Executor getPreInflateExecutor() {
+        if (sPreInflateExecutor == null) {
+            sPreInflateExecutor = newExecutor("SuperListview inflater #", 1, PRE_INFLATE_QUEUE_CAPACITY,
+                                              Process.THREAD_PRIORITY_LOWEST);
+        }
+        return sPreInflateExecutor;
+    }
+
+    private static Executor newExecutor(final String name, int poolSize, int queueCapacity, final int priority) {
+        boolean coreTimeOut = Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(coreTimeOut ? poolSize : 0, poolSize, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(priority);
+                        runnable.run();
+                    }
+                }, name + mCount.getAndIncrement());
+            }
+        });
+        if (coreTimeOut) {
+            allowCoreThreadTimeOut(executor);
+        }
+        return executor;
+    }
+
+    @TargetApi(Build.VERSION_CODES.GINGERBREAD)
+    private static void allowCoreThreadTimeOut(ThreadPoolExecutor executor) {
+        executor.allowCoreThreadTimeOut(true);
+    }
+}
@@ -0,0 +1,154 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Dismissals waiting for the end of their collapse animation, kept sorted by descending
+ * position in primitive arrays. Nothing is allocated unless the capacity has to grow.
+ */
+public class PendingDismissQueue<V> {
+
+    private int[]     mPositions;
+    private Object[]  mViews;
+    private int[]     mHeights;
+    private int[]     mCollapsed;
+    private long[]    mStartTimes;
+    private boolean[] mDone;
+    private int       mSize;
+
+    public PendingDismissQueue() {
+        this(4);
+    }
+
+    public PendingDismissQueue(int capacity) {
+        mPositions = new int[capacity];
+        mViews = new Object[capacity];
+        mHeights = new int[capacity];
+        mCollapsed = new int[capacity];
+        mStartTimes = new long[capacity];
+        mDone = new boolean[capacity];
+    }
+
+    /**
+     * Insert a dismissal, keeping the queue sorted by descending position
+     * @return the index of the new entry
+     */
+    public int add(int position, V view, int height, long startTime) {
+        ensureCapacity(mSize + 1);
+        int index = mSize;
+        while (index > 0 && mPositions[index - 1] < position) {
+            mPositions[index] = mPositions[index - 1];
+            mViews[index] = mViews[index - 1];
+            mHeights[index] = mHeights[index - 1];
+            mCollapsed[index] = mCollapsed[index - 1];
+            mStartTimes[index] = mStartTimes[index - 1];
+            mDone[index] = mDone[index - 1];
+            index--;
+        }
+        mPositions[index] = position;
+        mViews[index] = view;
+        mHeights[index] = height;
+        mCollapsed[index] = 0;
+        mStartTimes[index] = startTime;
+        mDone[index] = false;
+        mSize++;
+        return index;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getPosition(int index) {
+        return mPositions[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getView(int index) {
+        return (V) mViews[index];
+    }
+
+    public int getHeight(int index) {
+        return mHeights[index];
+    }
+
+    public long getStartTime(int index) {
+        return mStartTimes[index];
+    }
+
+    public int getCollapsed(int index) {
+        return mCollapsed[index];
+    }
+
+    public void setCollapsed(int index, int collapsed) {
+        mCollapsed[index] = collapsed;
+    }
+
+    public boolean isDone(int index) {
+        return mDone[index];
+    }
+
+    public void setDone(int index) {
+        mDone[index] = true;
+    }
+
+    /**
+     * @return the sum of the collapsed heights of the entries above the given position
+     */
+    public int getCollapsedAbove(int position) {
+        int offset = 0;
+        // Sorted by descending position, the entries above are at the end
+        for (int i = mSize - 1; i >= 0 && mPositions[i] < position; i--) {
+            offset += mCollapsed[i];
+        }
+        return offset;
+    }
+
+    /**
+     * @return a copy of the positions, sorted in descending order
+     */
+    public int[] toPositionArray() {
+        int[] positions = new int[mSize];
+        System.arraycopy(mPositions, 0, positions, 0, mSize);
+        return positions;
+    }
+
+    /**
+     * Copy the positions, sorted in descending order, without allocating
+     * @param dest array of at least {@link #size()} positions
+     */
+    public void copyPositions(int[] dest) {
+        System.arraycopy(mPositions, 0, dest, 0, mSize);
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mViews[i] = null;
+        }
+        mSize = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mPositions.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mPositions.length * 2);
+        mPositions = grow(mPositions, newCapacity);
+        mHeights = grow(mHeights, newCapacity);
+        mCollapsed = grow(mCollapsed, newCapacity);
+
+        Object[] views = new Object[newCapacity];
+        System.arraycopy(mViews, 0, views, 0, mSize);
+        mViews = views;
+        long[] startTimes = new long[newCapacity];
+        System.arraycopy(mStartTimes, 0, startTimes, 0, mSize);
+        mStartTimes = startTimes;
+        boolean[] done = new boolean[newCapacity];
+        System.arraycopy(mDone, 0, done, 0, mSize);
+        mDone = done;
+    }
+
+    private int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, mSize);
+        return grown;
+    }
+}
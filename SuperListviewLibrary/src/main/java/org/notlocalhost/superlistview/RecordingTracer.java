@@ -0,0 +1,90 @@
+package org.notlocalhost.superlistview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the sections in memory, to check in tests which operations ran and how long they took.
+ * Sections are recorded when they end. Only traces the thread it is first used on.
+ */
+public class RecordingTracer implements Tracer {
+
+    public static final class Span {
+        public final String name;
+        /** Number of sections this one is nested in */
+        public final int    depth;
+        public final long   startNanos;
+        public final long   durationNanos;
+
+        Span(String name, int depth, long startNanos, long durationNanos) {
+            this.name = name;
+            this.depth = depth;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + durationNanos / 1000000f + "ms";
+        }
+    }
+
+    private final JankTracker.Clock mClock;
+    private final ArrayList<Span>   mSpans = new ArrayList<Span>();
+    private final ArrayList<String> mOpenNames = new ArrayList<String>();
+    private final ArrayList<Long>   mOpenStarts = new ArrayList<Long>();
+    private Thread                  mThread;
+
+    public RecordingTracer() {
+        this(JankTracker.SYSTEM_CLOCK);
+    }
+
+    public RecordingTracer(JankTracker.Clock clock) {
+        mClock = clock;
+    }
+
+    @Override
+    public synchronized void beginSection(String name) {
+        if (!isTracedThread()) return;
+        mOpenNames.add(name);
+        mOpenStarts.add(mClock.nanoTime());
+    }
+
+    @Override
+    public synchronized void endSection() {
+        if (!isTracedThread() || mOpenNames.isEmpty()) return;
+        int last = mOpenNames.size() - 1;
+        long start = mOpenStarts.remove(last);
+        mSpans.add(new Span(mOpenNames.remove(last), last, start, mClock.nanoTime() - start));
+    }
+
+    /**
+     * @return the ended sections, in the order they ended
+     */
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<Span>(mSpans);
+    }
+
+    /**
+     * @param name
+     * @return how many sections of that name ended
+     */
+    public synchronized int count(String name) {
+        int count = 0;
+        for (Span span : mSpans) {
+            if (span.name.equals(name)) count++;
+        }
+        return count;
+    }
+
+    public synchronized void clear() {
+        mSpans.clear();
+        mOpenNames.clear();
+        mOpenStarts.clear();
+    }
+
+    private boolean isTracedThread() {
+        if (mThread == null) mThread = Thread.currentThread();
+        return mThread == Thread.currentThread();
+    }
+}
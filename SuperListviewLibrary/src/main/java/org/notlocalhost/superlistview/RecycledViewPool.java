@@ -0,0 +1,91 @@
+package org.notlocalhost.superlistview;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Views of a {@link SuperAdapter} kept for reuse, by view type.
+ * A pool can be shared by the adapters of several lists showing the same rows, like the tabs of
+ * a screen, so a row inflated for one list is reused by the others. Views keep the context they
+ * were inflated with, don't share a pool across activities.
+ * Must be used on the UI thread.
+ */
+public class RecycledViewPool {
+
+    public static final int DEFAULT_MAX_SCRAP = 5;
+
+    private final SparseArray<ArrayList<View>> mScrap = new SparseArray<ArrayList<View>>();
+    private final SparseIntArray               mMaxScrap = new SparseIntArray();
+
+    /**
+     * Set how many views of a type are kept, {@link #DEFAULT_MAX_SCRAP} by default
+     * @param viewType
+     * @param max
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        mMaxScrap.put(viewType, max);
+        ArrayList<View> scrap = mScrap.get(viewType);
+        if (scrap != null) {
+            while (scrap.size() > max) {
+                scrap.remove(scrap.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * @param viewType
+     * @return a view of that type, or null when there is none
+     */
+    public View getRecycledView(int viewType) {
+        ArrayList<View> scrap = mScrap.get(viewType);
+        if (scrap == null || scrap.isEmpty()) {
+            return null;
+        }
+        return scrap.remove(scrap.size() - 1);
+    }
+
+    /**
+     * Keep a view for reuse, unless the pool is full for its type
+     * @param viewType
+     * @param view A view with no parent
+     * @return true if the view was kept
+     */
+    public boolean putRecycledView(int viewType, View view) {
+        if (view.getParent() != null) {
+            return false;
+        }
+        ArrayList<View> scrap = mScrap.get(viewType);
+        if (scrap == null) {
+            scrap = new ArrayList<View>();
+            mScrap.put(viewType, scrap);
+        }
+        if (scrap.size() >= mMaxScrap.get(viewType, DEFAULT_MAX_SCRAP)) {
+            return false;
+        }
+        scrap.add(view);
+        return true;
+    }
+
+    public int getRecycledViewCount(int viewType) {
+        ArrayList<View> scrap = mScrap.get(viewType);
+        return scrap == null ? 0 : scrap.size();
+    }
+
+    /**
+     * @param viewType
+     * @return true if the pool can take another view of that type
+     */
+    public boolean hasRoomFor(int viewType) {
+        return getRecycledViewCount(viewType) < mMaxScrap.get(viewType, DEFAULT_MAX_SCRAP);
+    }
+
+    /**
+     * Drop all the views
+     */
+    public void clear() {
+        mScrap.clear();
+    }
+}
@@ -0,0 +1,12 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Adapter able to remove several positions at once, used by the auto remove of swipe to dismiss.
+ */
+public interface RemovableAdapter {
+    /**
+     * Remove the items in a single pass over the data and notify the change once
+     * @param reverseSortedPositions Positions to remove, sorted in descending order
+     */
+    public void removeItems(int[] reverseSortedPositions);
+}
@@ -0,0 +1,31 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Frame statistics of one scroll session, from the scroll state leaving idle to going back idle.
+ */
+public final class ScrollMetrics {
+
+    /** Frames drawn during the session */
+    public final int  frames;
+    /** Frames that missed at least one vsync */
+    public final int  jankyFrames;
+    /** Vsyncs missed during the session */
+    public final int  droppedFrames;
+    /** Longest interval between two frames */
+    public final long maxFrameIntervalNanos;
+    public final long durationNanos;
+
+    public ScrollMetrics(int frames, int jankyFrames, int droppedFrames, long maxFrameIntervalNanos, long durationNanos) {
+        this.frames = frames;
+        this.jankyFrames = jankyFrames;
+        this.droppedFrames = droppedFrames;
+        this.maxFrameIntervalNanos = maxFrameIntervalNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ScrollMetrics{frames=" + frames + ", janky=" + jankyFrames + ", dropped=" + droppedFrames
+                + ", maxFrameMs=" + maxFrameIntervalNanos / 1000000f + ", durationMs=" + durationNanos / 1000000f + "}";
+    }
+}
@@ -0,0 +1,285 @@
+package org.notlocalhost.superlistview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Adapter for a data set whose size is known up front, only the pages around the visible
+ * positions are kept in memory.
+ * Positions whose page isn't loaded yet are shown with a placeholder and their page is fetched
+ * from the {@link PagedDataSource} on a background executor, so jumping to the middle of the
+ * list only loads the pages that end up on screen.
+ */
+public abstract class SparsePagedAdapter<T> extends BaseAdapter {
+
+    private static final int VIEW_TYPE_ITEM        = 0;
+    private static final int VIEW_TYPE_PLACEHOLDER = 1;
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final PagedDataSource<T> mSource;
+    private final int                mPageSize;
+    private       int                mCount;
+    private       int                mMaxPages = 8;
+    private       Executor           mExecutor = PagingExecutor.get();
+
+    // Page table, page index -> items of the page
+    private final SparseArray<List<T>> mPages     = new SparseArray<List<T>>();
+    private final SparseBooleanArray   mRequested = new SparseBooleanArray();
+    // Pages loaded since the last notification
+    private final SparseArray<List<T>> mLoaded    = new SparseArray<List<T>>();
+    private       int                  mGeneration;
+    private       boolean              mFlushPosted;
+    // Page of the last position shown, used until the list reports its visible range
+    private volatile int  mWantedPage;
+    // First and last visible pages packed in one value, so the background threads read a
+    // consistent range. Negative until setVisibleRange is called
+    private volatile long mVisiblePages = -1;
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flushLoadedPages();
+        }
+    };
+
+    /**
+     * @param source   Source of the pages
+     * @param count    Total number of items
+     * @param pageSize Number of items of a page
+     */
+    public SparsePagedAdapter(PagedDataSource<T> source, int count, int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("pageSize must be positive");
+        mSource = source;
+        mCount = count;
+        mPageSize = pageSize;
+    }
+
+    /**
+     * Build the view of a loaded item
+     */
+    public abstract View getItemView(int position, T item, View convertView, ViewGroup parent);
+
+    /**
+     * Build the view shown while the page of a position is loading. Keep it cheap.
+     */
+    public abstract View getPlaceholderView(int position, View convertView, ViewGroup parent);
+
+    /**
+     * Called on the UI thread when a page could not be loaded. It is asked again the next time
+     * one of its positions is shown.
+     * @param page
+     * @param e
+     */
+    protected void onPageError(int page, Exception e) {
+    }
+
+    /**
+     * Number of pages kept in memory, the pages the farthest from the screen are dropped first
+     * @param maxPages
+     */
+    public void setMaxPages(int maxPages) {
+        mMaxPages = Math.max(2, maxPages);
+    }
+
+    public void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Change the total number of items. Loaded pages are kept.
+     * @param count
+     */
+    public void setCount(int count) {
+        mCount = count;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Drop every loaded page, they are loaded again when shown
+     */
+    public void invalidatePages() {
+        mGeneration++;
+        mPages.clear();
+        mRequested.clear();
+        mLoaded.clear();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Tell the adapter which positions are on screen. Pages outside of this range, give or take a
+     * page, are not fetched when their turn comes and are evicted first.
+     * Called by {@link BaseSuperAbsListview} as the list scrolls, call it from your own scroll
+     * listener when the adapter is set on a plain list
+     * @param firstPosition
+     * @param lastPosition
+     */
+    public void setVisibleRange(int firstPosition, int lastPosition) {
+        if (lastPosition < firstPosition) {
+            return;
+        }
+        mVisiblePages = ((long) (firstPosition / mPageSize) << 32) | (lastPosition / mPageSize);
+    }
+
+    /**
+     * @return true if the item at this position is in memory
+     */
+    public boolean isLoaded(int position) {
+        return mPages.get(position / mPageSize) != null;
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return the item, or null if its page isn't loaded yet
+     */
+    @Override
+    public T getItem(int position) {
+        List<T> page = mPages.get(position / mPageSize);
+        int index = position % mPageSize;
+        return page == null || index >= page.size() ? null : page.get(index);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return 2;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return isLoaded(position) ? VIEW_TYPE_ITEM : VIEW_TYPE_PLACEHOLDER;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int page = position / mPageSize;
+        mWantedPage = page;
+        T item = getItem(position);
+        if (item == null) {
+            requestPage(page);
+            return getPlaceholderView(position, convertView, parent);
+        }
+        return getItemView(position, item, convertView, parent);
+    }
+
+    private void requestPage(final int page) {
+        if (mRequested.get(page)) {
+            return;
+        }
+        mRequested.put(page, true);
+
+        final int generation = mGeneration;
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // The user flung past this page while it was queued
+                    if (distanceToVisible(page) > 1) {
+                        deliver(generation, page, null, null);
+                        return;
+                    }
+                    List<T> items = null;
+                    Exception error = null;
+                    try {
+                        items = mSource.loadPage(page, mPageSize);
+                    } catch (Exception e) {
+                        error = e;
+                    }
+                    deliver(generation, page, items, error);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mRequested.delete(page);
+            onPageError(page, e);
+        }
+    }
+
+    /**
+     * Called on the background thread. Pages landing together are applied with one notification.
+     */
+    private void deliver(final int generation, final int page, final List<T> items, final Exception error) {
+        sMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                mRequested.delete(page);
+                if (error != null) {
+                    onPageError(page, error);
+                } else if (items != null) {
+                    mLoaded.put(page, items);
+                    if (!mFlushPosted) {
+                        mFlushPosted = true;
+                        sMainHandler.post(mFlush);
+                    }
+                }
+            }
+        });
+    }
+
+    private void flushLoadedPages() {
+        mFlushPosted = false;
+        if (mLoaded.size() == 0) {
+            return;
+        }
+        for (int i = 0; i < mLoaded.size(); i++) {
+            mPages.put(mLoaded.keyAt(i), mLoaded.valueAt(i));
+        }
+        mLoaded.clear();
+        evictPages();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return the number of pages between this page and the visible ones, 0 for a visible page
+     */
+    private int distanceToVisible(int page) {
+        long visible = mVisiblePages;
+        int first;
+        int last;
+        if (visible < 0) {
+            first = last = mWantedPage;
+        } else {
+            first = (int) (visible >>> 32);
+            last = (int) visible;
+        }
+        if (page < first) return first - page;
+        if (page > last) return page - last;
+        return 0;
+    }
+
+    private void evictPages() {
+        while (mPages.size() > mMaxPages) {
+            int farthest = 0;
+            for (int i = 1; i < mPages.size(); i++) {
+                if (distanceToVisible(mPages.keyAt(i)) > distanceToVisible(mPages.keyAt(farthest))) {
+                    farthest = i;
+                }
+            }
+            // Never drop a page on screen, the window grows while more pages than that are visible
+            if (distanceToVisible(mPages.keyAt(farthest)) == 0) {
+                return;
+            }
+            mPages.removeAt(farthest);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.notlocalhost.superlistview;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+/**
+ * Adapter binding its rows through view holders.
+ * Rows are created by {@link #onCreateViewHolder(ViewGroup, int)} only when the list has no row of
+ * that type to reuse and the {@link RecycledViewPool}, if any, is empty for that type.
+ * The rows left by the list when its adapter is replaced or cleared go back to the pool.
+ * During a fling rows are bound by {@link #onBindLightViewHolder(ViewHolder, int)}, and bound
+ * again in full when the fling ends.
+ */
+public abstract class SuperAdapter<VH extends SuperAdapter.ViewHolder> extends BaseAdapter implements FlingAwareAdapter {
+
+    public static class ViewHolder {
+        public final View itemView;
+        int     mViewType;
+        int     mPosition = -1;
+        boolean mBoundLight;
+
+        public ViewHolder(View itemView) {
+            if (itemView == null)
+                throw new IllegalArgumentException("itemView may not be null");
+            this.itemView = itemView;
+        }
+
+        public int getItemViewType() {
+            return mViewType;
+        }
+
+        /**
+         * @return the position last bound
+         */
+        public int getPosition() {
+            return mPosition;
+        }
+
+        /**
+         * @return true if the row was last bound by onBindLightViewHolder
+         */
+        public boolean isBoundLight() {
+            return mBoundLight;
+        }
+    }
+
+    private RecycledViewPool mPool;
+    private boolean          mFlinging;
+    // Set by the list recording its adapter latency
+    private AdapterLatencyStats mLatencyStats;
+    private JankTracker.Clock   mClock;
+
+    /**
+     * Create the holder of a new row. Inflate it with {@link #getLayoutInflater(ViewGroup)}, it may be
+     * called off the UI thread, see {@link BaseSuperAbsListview#setPreInflateCount(int, int)}
+     * @param parent
+     * @param viewType
+     */
+    public abstract VH onCreateViewHolder(ViewGroup parent, int viewType);
+
+    /**
+     * Bind a row to an item
+     * @param holder
+     * @param position
+     */
+    public abstract void onBindViewHolder(VH holder, int position);
+
+    /**
+     * Bind a row during a fling, with only what is cheap to bind. Binds the full row by default
+     * @param holder
+     * @param position
+     */
+    public void onBindLightViewHolder(VH holder, int position) {
+        onBindViewHolder(holder, position);
+    }
+
+    @Override
+    public void setFlinging(boolean flinging) {
+        mFlinging = flinging;
+    }
+
+    public boolean isFlinging() {
+        return mFlinging;
+    }
+
+    /**
+     * Share a pool of rows with other adapters
+     * @param pool
+     */
+    public void setRecycledViewPool(RecycledViewPool pool) {
+        mPool = pool;
+    }
+
+    public RecycledViewPool getRecycledViewPool() {
+        return mPool;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int viewType = getItemViewType(position);
+        VH holder = null;
+        if (convertView != null) {
+            holder = (VH) convertView.getTag(R.id.superlv__view_holder);
+        }
+        if (holder == null && mPool != null) {
+            View recycled = mPool.getRecycledView(viewType);
+            if (recycled != null) {
+                holder = (VH) recycled.getTag(R.id.superlv__view_holder);
+            }
+        }
+        AdapterLatencyStats stats = mLatencyStats;
+        long start = stats != null ? mClock.nanoTime() : 0;
+        if (holder == null) {
+            holder = createViewHolder(parent, viewType);
+            if (stats != null) {
+                long created = mClock.nanoTime();
+                stats.record(viewType, AdapterLatencyStats.KIND_CREATE, created - start);
+                start = created;
+            }
+        }
+        holder.mPosition = position;
+        holder.mBoundLight = mFlinging;
+        if (mFlinging) {
+            onBindLightViewHolder(holder, position);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+        if (stats != null) {
+            stats.record(viewType, AdapterLatencyStats.KIND_BIND, mClock.nanoTime() - start);
+        }
+        return holder.itemView;
+    }
+
+    /**
+     * Time the create and bind steps of getView apart, see {@link BaseSuperAbsListview#setRecordAdapterLatency(boolean)}
+     * @param stats Null to stop
+     * @param clock
+     */
+    void setLatencyStats(AdapterLatencyStats stats, JankTracker.Clock clock) {
+        mLatencyStats = stats;
+        mClock = clock;
+    }
+
+    /**
+     * @return the inflater to create rows with. Rows pre-inflated in the background get an inflater of
+     * their own, the one of LayoutInflater.from(context) would contend with the UI thread
+     * @param parent
+     */
+    protected LayoutInflater getLayoutInflater(ViewGroup parent) {
+        LayoutInflater inflater = ViewPreInflater.getThreadInflater();
+        return inflater != null ? inflater : LayoutInflater.from(parent.getContext());
+    }
+
+    /**
+     * Create a holder and tag its row with it
+     * @param parent
+     * @param viewType
+     */
+    public final VH createViewHolder(ViewGroup parent, int viewType) {
+        VH holder = onCreateViewHolder(parent, viewType);
+        holder.mViewType = viewType;
+        holder.itemView.setTag(R.id.superlv__view_holder, holder);
+        return holder;
+    }
+
+    static boolean isBoundLight(View row) {
+        Object tag = row.getTag(R.id.superlv__view_holder);
+        return tag instanceof ViewHolder && ((ViewHolder) tag).mBoundLight;
+    }
+
+    /**
+     * Give a row dropped by the list to the pool
+     * @param view
+     * @return true if the pool kept it
+     */
+    boolean recycleView(View view) {
+        if (mPool == null) {
+            return false;
+        }
+        Object tag = view.getTag(R.id.superlv__view_holder);
+        if (!(tag instanceof ViewHolder)) {
+            return false;
+        }
+        ViewHolder holder = (ViewHolder) tag;
+        holder.mPosition = -1;
+        return mPool.putRecycledView(holder.mViewType, view);
+    }
+}
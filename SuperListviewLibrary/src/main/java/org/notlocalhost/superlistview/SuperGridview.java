@@ -1,12 +1,12 @@
 package org.notlocalhost.superlistview;
 
+import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.view.View;
 import android.widget.GridView;
 
-import android.widget.ListAdapter;
 import org.notlocalhost.superlistview.R;
 
 
@@ -43,22 +43,19 @@ public class SuperGridview extends BaseSuperAbsListview {
     @Override
     protected void initAttrs(AttributeSet attrs) {
         super.initAttrs(attrs);
-
-        TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.superlistview);
-        try {
-            mSuperListViewMainLayout = a.getResourceId(R.styleable.superlistview_superlv_mainLayoutID, R.layout.view_progress_gridview);
-        } finally {
-            a.recycle();
+        if (mAttributes.mainLayoutId != 0) {
+            mSuperListViewMainLayout = mAttributes.mainLayoutId;
+        } else {
+            mSuperListViewMainLayout = mAttributes.flattenLayout ? R.layout.view_progress_gridview_flat : R.layout.view_progress_gridview;
         }
+        mColumns = mAttributes.columns;
+        mVerticalSpacing = mAttributes.verticalSpacing;
+        mHorizontalSpacing = mAttributes.horizontalSpacing;
+    }
 
-        TypedArray ag = getContext().obtainStyledAttributes(attrs, R.styleable.supergridview);
-        try {
-            mColumns = ag.getInt(R.styleable.supergridview_supergv__columns, 1);
-            mVerticalSpacing = (int) ag.getDimension(R.styleable.supergridview_supergv__verticalSpacing, 1);
-            mHorizontalSpacing = (int) ag.getDimension(R.styleable.supergridview_supergv__horizontalSpacing, 1);
-        } finally {
-            ag.recycle();
-        }
+    @Override
+    protected boolean usesGridAttributes() {
+        return true;
     }
 
     @Override
@@ -95,14 +92,56 @@ public class SuperGridview extends BaseSuperAbsListview {
     }
 
     @Override
-    public void setAdapter(ListAdapter adapter) {
-        getList().setAdapter(adapter);
-        super.setAdapter(adapter);
+    public void restoreScrollPosition(int position, int top) {
+        // GridView has no setSelectionFromTop: select the row, then move it back to its offset
+        mList.setSelection(position);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            // The offset is counted from the top padding
+            scrollToPositionFromTop(position, top - mList.getPaddingTop());
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void scrollToPositionFromTop(int position, int offset) {
+        mList.smoothScrollToPositionFromTop(position, offset, 0);
+    }
+
+    @Override
+    protected int getItemsPerRow() {
+        // auto_fit columns are only known once laid out
+        return mColumns > 0 ? mColumns : 1;
     }
 
     @Override
     public void clear() {
-        getList().setAdapter(null);
+        releaseAdapter();
+    }
+
+    /**
+     * Enable swipe to dismiss on the cells of the grid. The remaining cells slide to their new slot
+     * @param listener
+     * @param autoRemove Remove the dismissed items from the adapter
+     * @return the touch listener, to pause it
+     */
+    public SwipeDismissListViewTouchListener setupSwipeToDismiss(SwipeDismissListViewTouchListener.AbsListDismissCallbacks listener, boolean autoRemove) {
+        return setupSwipeToDismiss(listener, autoRemove, -1);
+    }
+
+    /**
+     * Enable swipe to dismiss on the cells of the grid, with undo.
+     * Dismissed items are hidden and the listener is called once for all of them when the undo
+     * timeout expires or the grid scrolls. Use {@link #undoDismiss()} to show them back
+     * @param listener
+     * @param autoRemove  Remove the dismissed items from the adapter
+     * @param undoTimeout Time in ms the dismissed items can be restored, negative to disable undo.
+     *                    Needs an adapter with stable ids
+     * @return the touch listener, to pause it
+     */
+    public SwipeDismissListViewTouchListener setupSwipeToDismiss(SwipeDismissListViewTouchListener.AbsListDismissCallbacks listener, boolean autoRemove, long undoTimeout) {
+        SwipeDismissListViewTouchListener touchListener =
+                new SwipeDismissListViewTouchListener(mList, makeDismissCallbacks(listener, autoRemove, undoTimeout));
+        mList.setOnTouchListener(touchListener);
+        return touchListener;
     }
 
 }
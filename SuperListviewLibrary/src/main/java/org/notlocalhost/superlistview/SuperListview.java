@@ -1,11 +1,9 @@
 package org.notlocalhost.superlistview;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.util.AttributeSet;
 import android.view.View;
-import android.widget.ArrayAdapter;
-import android.widget.ListAdapter;
+import android.widget.AbsListView;
 import android.widget.ListView;
 
 
@@ -35,11 +33,10 @@ public class SuperListview extends BaseSuperAbsListview {
     @Override
     protected void initAttrs(AttributeSet attrs) {
         super.initAttrs(attrs);
-        TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.superlistview);
-        try {
-            mSuperListViewMainLayout = a.getResourceId(R.styleable.superlistview_superlv_mainLayoutID, R.layout.view_progress_listview);
-        } finally {
-            a.recycle();
+        if (mAttributes.mainLayoutId != 0) {
+            mSuperListViewMainLayout = mAttributes.mainLayoutId;
+        } else {
+            mSuperListViewMainLayout = mAttributes.flattenLayout ? R.layout.view_progress_listview_flat : R.layout.view_progress_listview;
         }
     }
 
@@ -78,36 +75,50 @@ public class SuperListview extends BaseSuperAbsListview {
     }
 
     @Override
-    public void setAdapter(ListAdapter adapter) {
-        getList().setAdapter(adapter);
-        super.setAdapter(adapter);
+    public void restoreScrollPosition(int position, int top) {
+        // setSelectionFromTop adds the top padding back
+        getList().setSelectionFromTop(position, top - mList.getPaddingTop());
     }
 
     @Override
     public void clear() {
-        getList().setAdapter(null);
+        releaseAdapter();
     }
 
-    public void setupSwipeToDismiss(final SwipeDismissListViewTouchListener.DismissCallbacks listener, final boolean autoRemove) {
+    /**
+     * Enable swipe to dismiss on the items of the list
+     * @param listener
+     * @param autoRemove Remove the dismissed items from the adapter
+     * @return the touch listener, to pause it or change how items collapse
+     */
+    public SwipeDismissListViewTouchListener setupSwipeToDismiss(final SwipeDismissListViewTouchListener.DismissCallbacks listener, final boolean autoRemove) {
+        return setupSwipeToDismiss(listener, autoRemove, -1);
+    }
+
+    /**
+     * Enable swipe to dismiss on the items of the list, with undo.
+     * Dismissed items are hidden and the listener is called once for all of them when the undo
+     * timeout expires or the list scrolls. Use {@link #undoDismiss()} to show them back
+     * @param listener
+     * @param autoRemove  Remove the dismissed items from the adapter
+     * @param undoTimeout Time in ms the dismissed items can be restored, negative to disable undo.
+     *                    Needs an adapter with stable ids
+     * @return the touch listener, to pause it or change how items collapse
+     */
+    public SwipeDismissListViewTouchListener setupSwipeToDismiss(final SwipeDismissListViewTouchListener.DismissCallbacks listener, final boolean autoRemove, long undoTimeout) {
         SwipeDismissListViewTouchListener touchListener =
-                new SwipeDismissListViewTouchListener((ListView) mList, new SwipeDismissListViewTouchListener.DismissCallbacks() {
+                new SwipeDismissListViewTouchListener(mList, makeDismissCallbacks(new SwipeDismissListViewTouchListener.AbsListDismissCallbacks() {
                     @Override
                     public boolean canDismiss(int position) {
                         return listener.canDismiss(position);
                     }
 
                     @Override
-                    public void onDismiss(ListView listView, int[] reverseSortedPositions) {
-                        if (autoRemove) {
-                            for (int position : reverseSortedPositions) {
-
-                                ((ArrayAdapter)mList.getAdapter()).remove(mList.getAdapter().getItem(position));
-                            }
-                            ((ArrayAdapter)mList.getAdapter()).notifyDataSetChanged();
-                        }
-                        listener.onDismiss(listView, reverseSortedPositions);
+                    public void onDismiss(AbsListView listView, int[] reverseSortedPositions) {
+                        listener.onDismiss(getList(), reverseSortedPositions);
                     }
-                });
+                }, autoRemove, undoTimeout));
         mList.setOnTouchListener(touchListener);
+        return touchListener;
     }
 }
@@ -0,0 +1,58 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Decisions of the swipe to dismiss touch listeners, kept apart from the views so they can run
+ * and be measured on a plain JVM.
+ */
+final class SwipeDecision {
+
+    static final int DISMISS_NONE  = 0;
+    static final int DISMISS_LEFT  = -1;
+    static final int DISMISS_RIGHT = 1;
+
+    private SwipeDecision() {
+    }
+
+    /**
+     * @return true if a move is a horizontal swipe: past the slop, and mostly horizontal
+     */
+    static boolean isSwipe(float deltaX, float deltaY, int slop) {
+        return Math.abs(deltaX) > slop && Math.abs(deltaY) < Math.abs(deltaX) / 2;
+    }
+
+    /**
+     * Decide what happens when a swipe ends. A swipe dismisses when dragged past half the view,
+     * or when flung horizontally in the direction it was dragged
+     * @param deltaX    Distance dragged
+     * @param velocityX In px per second
+     * @param velocityY In px per second
+     * @param viewWidth
+     * @param minFlingVelocity
+     * @param maxFlingVelocity
+     * @param swiping   True if the move was recognized as a swipe
+     * @return {@link #DISMISS_NONE}, {@link #DISMISS_LEFT} or {@link #DISMISS_RIGHT}
+     */
+    static int decide(float deltaX, float velocityX, float velocityY, int viewWidth,
+                      int minFlingVelocity, int maxFlingVelocity, boolean swiping) {
+        if (!swiping) {
+            return DISMISS_NONE;
+        }
+        if (Math.abs(deltaX) > viewWidth / 2) {
+            return deltaX > 0 ? DISMISS_RIGHT : DISMISS_LEFT;
+        }
+        float absVelocityX = Math.abs(velocityX);
+        if (minFlingVelocity <= absVelocityX && absVelocityX <= maxFlingVelocity
+                && Math.abs(velocityY) < absVelocityX
+                && (velocityX < 0) == (deltaX < 0)) {
+            return velocityX > 0 ? DISMISS_RIGHT : DISMISS_LEFT;
+        }
+        return DISMISS_NONE;
+    }
+
+    /**
+     * @return the alpha of a view dragged by deltaX, transparent at half its width
+     */
+    static float swipeAlpha(float deltaX, int viewWidth) {
+        return Math.max(0f, Math.min(1f, 1f - 2f * Math.abs(deltaX) / viewWidth));
+    }
+}
@@ -16,26 +16,25 @@
 
 package org.notlocalhost.superlistview;
 
-import android.graphics.Rect;
 import android.os.SystemClock;
 import android.support.v4.view.MotionEventCompat;
 import android.view.*;
+import android.view.animation.AnimationUtils;
 import android.widget.AbsListView;
+import android.widget.GridView;
 import android.widget.ListView;
 import com.nineoldandroids.animation.Animator;
 import com.nineoldandroids.animation.AnimatorListenerAdapter;
 import com.nineoldandroids.animation.ValueAnimator;
-import com.nineoldandroids.view.animation.AnimatorProxy;
+import com.nineoldandroids.view.ViewHelper;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 import static com.nineoldandroids.view.ViewPropertyAnimator.animate;
 
 /**
- * A {@link View.OnTouchListener} that makes the list items in a {@link ListView}
- * dismissable. {@link ListView} is given special treatment because by default it handles touches
+ * A {@link View.OnTouchListener} that makes the list items in a {@link ListView}, or the cells
+ * of any other {@link AbsListView} like a {@link GridView}, dismissable. {@link ListView} is given special treatment because by default it handles touches
  * for its list items... i.e. it's in charge of drawing the pressed state (the list selector),
  * handling list item clicks, etc.
  *
@@ -64,6 +63,10 @@ import static com.nineoldandroids.view.ViewPropertyAnimator.animate;
  * listView.setOnScrollListener(touchListener.makeScrollListener());
  * </pre>
  *
+ * <p>Items of a {@link ListView} collapse before the callback is fired. In a grid, the remaining
+ * cells slide from their old slot to their new one after the callback has removed the dismissed
+ * items, see {@link #setReflowOnDismiss(boolean)}.</p>
+ *
  * <p>This class Requires API level 12 or later due to use of {@link
  * ViewPropertyAnimator}.</p>
  *
@@ -80,22 +83,40 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
     private long mAnimationTime;
 
     // Fixed properties
-    private ListView         mListView;
-    private DismissCallbacks mCallbacks;
+    private AbsListView             mListView;
+    private AbsListDismissCallbacks mCallbacks;
     private int mViewWidth = 1; // 1 and not 0 to prevent dividing by zero
 
     // Transient properties
-    private List<PendingDismissData> mPendingDismisses         = new ArrayList<PendingDismissData>();
-    private int                      mDismissAnimationRefCount = 0;
+    private PendingDismissQueue<View> mPendingDismisses         = new PendingDismissQueue<View>();
+    private int                       mDismissAnimationRefCount = 0;
+    private ValueAnimator             mCollapseAnimator;
+    // Listeners of finished swipe out animations, reused for the next dismiss
+    private ArrayList<DismissAnimationListener> mDismissListeners = new ArrayList<DismissAnimationListener>();
+    // Arrays handed to the callback, indexed by their length
+    private int[][]         mPositionArrays = new int[2][];
     private float           mDownX;
     private float           mDownY;
     private boolean         mSwiping;
     private int             mSwipingSlop;
     private VelocityTracker mVelocityTracker;
+    private boolean         mTracking;
     private int             mDownPosition;
     private View            mDownView;
-    private AnimatorProxy   mDownViewProxy;
     private boolean         mPaused;
+    private boolean         mLayoutFreeCollapse;
+    private boolean         mReflow;
+    // Height the list is laid out past its bottom during a layout free collapse
+    private int             mCollapseExtent;
+    private int             mSavedPaddingBottom;
+
+    // Geometry of the visible items before a reflow
+    private int[] mReflowPositions = new int[0];
+    private int   mReflowPositionCount;
+    private int   mReflowFirstPosition;
+    private int   mReflowChildCount;
+    private int[] mReflowLefts = new int[0];
+    private int[] mReflowTops  = new int[0];
 
     /**
      * The callback interface used by {@link SwipeDismissListViewTouchListener} to inform its client
@@ -113,11 +134,33 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
          *
          * @param listView               The originating {@link ListView}.
          * @param reverseSortedPositions An array of positions to dismiss, sorted in descending
-         *                               order for convenience.
+         *                               order for convenience. The array is reused by the next
+         *                               dismissal, copy it to keep it.
          */
         void onDismiss(ListView listView, int[] reverseSortedPositions);
     }
 
+    /**
+     * Same as {@link DismissCallbacks} for any {@link AbsListView}.
+     */
+    public interface AbsListDismissCallbacks {
+        /**
+         * Called to determine whether the given position can be dismissed.
+         */
+        boolean canDismiss(int position);
+
+        /**
+         * Called when the user has indicated they would like to dismiss one or more item
+         * positions. The items must be removed from the adapter before returning.
+         *
+         * @param listView               The originating {@link AbsListView}.
+         * @param reverseSortedPositions An array of positions to dismiss, sorted in descending
+         *                               order for convenience. The array is reused by the next
+         *                               dismissal, copy it to keep it.
+         */
+        void onDismiss(AbsListView listView, int[] reverseSortedPositions);
+    }
+
     /**
      * Constructs a new swipe-to-dismiss touch listener for the given list view.
      *
@@ -125,7 +168,28 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
      * @param callbacks The callback to trigger when the user has indicated that she would like to
      *                  dismiss one or more list items.
      */
-    public SwipeDismissListViewTouchListener(ListView listView, DismissCallbacks callbacks) {
+    public SwipeDismissListViewTouchListener(final ListView listView, final DismissCallbacks callbacks) {
+        this(listView, new AbsListDismissCallbacks() {
+            @Override
+            public boolean canDismiss(int position) {
+                return callbacks.canDismiss(position);
+            }
+
+            @Override
+            public void onDismiss(AbsListView absListView, int[] reverseSortedPositions) {
+                callbacks.onDismiss(listView, reverseSortedPositions);
+            }
+        });
+    }
+
+    /**
+     * Constructs a new swipe-to-dismiss touch listener for the given list or grid view.
+     *
+     * @param listView  The view whose items should be dismissable.
+     * @param callbacks The callback to trigger when the user has indicated that they would like to
+     *                  dismiss one or more items.
+     */
+    public SwipeDismissListViewTouchListener(AbsListView listView, AbsListDismissCallbacks callbacks) {
         ViewConfiguration vc = ViewConfiguration.get(listView.getContext());
         mSlop = vc.getScaledTouchSlop();
         mMinFlingVelocity = vc.getScaledMinimumFlingVelocity() * 16;
@@ -134,6 +198,17 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
                 android.R.integer.config_shortAnimTime);
         mListView = listView;
         mCallbacks = callbacks;
+        mReflow = !(listView instanceof ListView);
+
+        // Single animator ticking every pending collapse
+        mCollapseAnimator = ValueAnimator.ofFloat(0f, 1f).setDuration(Math.max(1, mAnimationTime));
+        mCollapseAnimator.setRepeatCount(ValueAnimator.INFINITE);
+        mCollapseAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator valueAnimator) {
+                onCollapseFrame();
+            }
+        });
     }
 
     /**
@@ -145,6 +220,29 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
         mPaused = !enabled;
     }
 
+    /**
+     * Collapse the dismissed items by sliding the items below them up instead of shrinking their
+     * height. Instead of on every animation frame, the list is laid out when a collapse starts,
+     * with the rows that slide in from below, and once more when the dismiss callback is fired.
+     * Disabled by default.
+     *
+     * @param enabled Whether or not to collapse without layout.
+     */
+    public void setLayoutFreeCollapse(boolean enabled) {
+        mLayoutFreeCollapse = enabled;
+    }
+
+    /**
+     * Skip the collapse and let the remaining items slide to their new slot once the callback
+     * removed the dismissed ones. Enabled by default for anything but a {@link ListView}, where
+     * collapsing a cell doesn't close the gap.
+     *
+     * @param enabled Whether or not to reflow instead of collapsing.
+     */
+    public void setReflowOnDismiss(boolean enabled) {
+        mReflow = enabled;
+    }
+
     /**
      * Returns an {@link AbsListView.OnScrollListener} to be added to the {@link
      * ListView} using {@link ListView#setOnScrollListener(AbsListView.OnScrollListener)}.
@@ -181,41 +279,36 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
 
                 // TODO: ensure this is a finger, and set a flag
 
-                // Find the child view that was touched (perform a hit test)
-                Rect rect = new Rect();
-                int childCount = mListView.getChildCount();
-                int[] listViewCoords = new int[2];
-                mListView.getLocationOnScreen(listViewCoords);
-                int x = (int) motionEvent.getRawX() - listViewCoords[0];
-                int y = (int) motionEvent.getRawY() - listViewCoords[1];
-                View child;
-                for (int i = 0; i < childCount; i++) {
-                    child = mListView.getChildAt(i);
-                    child.getHitRect(rect);
-                    if (rect.contains(x, y)) {
-                        mDownView = child;
-                        mDownViewProxy = AnimatorProxy.wrap(child);
-                        break;
-                    }
+                // Find the child view that was touched, the listener is set on the list so the
+                // event is in list coordinates
+                mDownView = null;
+                int position = mListView.pointToPosition((int) motionEvent.getX(), (int) motionEvent.getY());
+                if (position != ListView.INVALID_POSITION) {
+                    mDownView = mListView.getChildAt(position - mListView.getFirstVisiblePosition());
                 }
 
                 if (mDownView != null) {
                     mDownX = motionEvent.getRawX();
                     mDownY = motionEvent.getRawY();
-                    mDownPosition = mListView.getPositionForView(mDownView);
+                    mDownPosition = position;
                     if (mCallbacks.canDismiss(mDownPosition)) {
-                        mVelocityTracker = VelocityTracker.obtain();
+                        // The tracker is kept for the next gestures
+                        if (mVelocityTracker == null) {
+                            mVelocityTracker = VelocityTracker.obtain();
+                        } else {
+                            mVelocityTracker.clear();
+                        }
                         mVelocityTracker.addMovement(motionEvent);
+                        mTracking = true;
                     } else {
                         mDownView = null;
-                        mDownViewProxy= null;
                     }
                 }
                 return false;
             }
 
             case MotionEvent.ACTION_CANCEL: {
-                if (mVelocityTracker == null) {
+                if (!mTracking) {
                     break;
                 }
 
@@ -227,54 +320,41 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
                             .setDuration(mAnimationTime)
                             .setListener(null);
                 }
-                mVelocityTracker.recycle();
-                mVelocityTracker = null;
+                mTracking = false;
                 mDownX = 0;
                 mDownY = 0;
                 mDownView = null;
-                mDownViewProxy= null;
                 mDownPosition = ListView.INVALID_POSITION;
                 mSwiping = false;
                 break;
             }
 
             case MotionEvent.ACTION_UP: {
-                if (mVelocityTracker == null) {
+                if (!mTracking) {
                     break;
                 }
 
                 float deltaX = motionEvent.getRawX() - mDownX;
                 mVelocityTracker.addMovement(motionEvent);
                 mVelocityTracker.computeCurrentVelocity(1000);
-                float velocityX = mVelocityTracker.getXVelocity();
-                float absVelocityX = Math.abs(velocityX);
-                float absVelocityY = Math.abs(mVelocityTracker.getYVelocity());
-                boolean dismiss = false;
-                boolean dismissRight = false;
-                if (Math.abs(deltaX) > mViewWidth / 2 && mSwiping) {
-                    dismiss = true;
-                    dismissRight = deltaX > 0;
-                } else if (mMinFlingVelocity <= absVelocityX && absVelocityX <= mMaxFlingVelocity
-                           && absVelocityY < absVelocityX && mSwiping) {
-                    // dismiss only if flinging in the same direction as dragging
-                    dismiss = (velocityX < 0) == (deltaX < 0);
-                    dismissRight = mVelocityTracker.getXVelocity() > 0;
-                }
+                int decision = SwipeDecision.decide(deltaX, mVelocityTracker.getXVelocity(), mVelocityTracker.getYVelocity(),
+                                                    mViewWidth, mMinFlingVelocity, mMaxFlingVelocity, mSwiping);
+                boolean dismiss = decision != SwipeDecision.DISMISS_NONE;
+                boolean dismissRight = decision == SwipeDecision.DISMISS_RIGHT;
                 if (dismiss && mDownPosition != ListView.INVALID_POSITION) {
                     // dismiss
-                    final View downView = mDownView; // mDownView gets null'd before animation ends
-                    final int downPosition = mDownPosition;
+                    // mDownView gets null'd before animation ends
+                    DismissAnimationListener listener = mDismissListeners.isEmpty()
+                                                        ? new DismissAnimationListener()
+                                                        : mDismissListeners.remove(mDismissListeners.size() - 1);
+                    listener.mView = mDownView;
+                    listener.mPosition = mDownPosition;
                     ++mDismissAnimationRefCount;
                     animate(mDownView)
                             .translationX(dismissRight ? mViewWidth : -mViewWidth)
                             .alpha(0)
                             .setDuration(mAnimationTime)
-                            .setListener(new AnimatorListenerAdapter() {
-                                @Override
-                                public void onAnimationEnd(Animator animation) {
-                                    performDismiss(downView, downPosition);
-                                }
-                            });
+                            .setListener(listener);
                 } else {
                     animate(mDownView)
                             .translationX(0)
@@ -282,43 +362,41 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
                             .setDuration(mAnimationTime)
                             .setListener(null);
                 }
-                mVelocityTracker.recycle();
-                mVelocityTracker = null;
+                mTracking = false;
                 mDownX = 0;
                 mDownY = 0;
                 mDownView = null;
-                mDownViewProxy= null;
                 mDownPosition = ListView.INVALID_POSITION;
                 mSwiping = false;
                 break;
             }
 
             case MotionEvent.ACTION_MOVE: {
-                if (mVelocityTracker == null || mPaused) {
+                if (!mTracking || mPaused) {
                     break;
                 }
 
                 mVelocityTracker.addMovement(motionEvent);
                 float deltaX = motionEvent.getRawX() - mDownX;
                 float deltaY = motionEvent.getRawY() - mDownY;
-                if (Math.abs(deltaX) > mSlop && Math.abs(deltaY) < Math.abs(deltaX) / 2) {
+                if (SwipeDecision.isSwipe(deltaX, deltaY, mSlop)) {
                     mSwiping = true;
                     mSwipingSlop = (deltaX > 0 ? mSlop : -mSlop);
                     mListView.requestDisallowInterceptTouchEvent(true);
 
-                    // Cancel ListView's touch (un-highlighting the item)
-                    MotionEvent cancelEvent = MotionEvent.obtain(motionEvent);
-                    cancelEvent.setAction(MotionEvent.ACTION_CANCEL |
+                    // Cancel ListView's touch (un-highlighting the item), reusing the event
+                    // like ViewGroup does instead of obtaining a copy
+                    int action = motionEvent.getAction();
+                    motionEvent.setAction(MotionEvent.ACTION_CANCEL |
                                           (MotionEventCompat.getActionIndex(motionEvent)
                                            << MotionEventCompat.ACTION_POINTER_INDEX_SHIFT));
-                    mListView.onTouchEvent(cancelEvent);
-                    cancelEvent.recycle();
+                    mListView.onTouchEvent(motionEvent);
+                    motionEvent.setAction(action);
                 }
 
                 if (mSwiping) {
-                    mDownViewProxy.setTranslationX(deltaX - mSwipingSlop);
-                    mDownViewProxy.setAlpha(Math.max(0f, Math.min(1f,
-                                                             1f - 2f * Math.abs(deltaX) / mViewWidth)));
+                    ViewHelper.setTranslationX(mDownView, deltaX - mSwipingSlop);
+                    ViewHelper.setAlpha(mDownView, SwipeDecision.swipeAlpha(deltaX, mViewWidth));
                     return true;
                 }
                 break;
@@ -327,81 +405,234 @@ public class SwipeDismissListViewTouchListener implements View.OnTouchListener {
         return false;
     }
 
-    class PendingDismissData implements Comparable<PendingDismissData> {
-        public int  position;
-        public View view;
+    private final class DismissAnimationListener extends AnimatorListenerAdapter {
+        View mView;
+        int  mPosition;
 
-        public PendingDismissData(int position, View view) {
-            this.position = position;
-            this.view = view;
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            View view = mView;
+            mView = null;
+            mDismissListeners.add(this);
+            performDismiss(view, mPosition);
         }
+    }
 
-        @Override
-        public int compareTo(PendingDismissData other) {
-            // Sort by descending position
-            return other.position - position;
+    private void performDismiss(View dismissView, int dismissPosition) {
+        Tracing.beginSection("SuperListview#performDismiss");
+        try {
+            if (mReflow) {
+                mPendingDismisses.add(dismissPosition, dismissView, 0, 0);
+                --mDismissAnimationRefCount;
+                if (mDismissAnimationRefCount == 0) {
+                    commitPendingDismisses();
+                }
+                return;
+            }
+
+            // Collapse the dismissed list item and fire the dismiss callback when all dismissed list
+            // item animations have completed. Every pending collapse is driven by the same animator,
+            // see onCollapseFrame.
+            mPendingDismisses.add(dismissPosition, dismissView, dismissView.getHeight(),
+                                  AnimationUtils.currentAnimationTimeMillis());
+            if (mLayoutFreeCollapse) {
+                extendCollapse(dismissView.getHeight());
+            }
+            if (!mCollapseAnimator.isRunning()) {
+                mCollapseAnimator.start();
+            }
+        } finally {
+            Tracing.endSection();
         }
     }
 
-    private void performDismiss(final View dismissView, final int dismissPosition) {
-        // Animate the dismissed list item to zero-height and fire the dismiss callback when
-        // all dismissed list item animations have completed. This triggers layout on each animation
-        // frame; in the future we may want to do something smarter and more performant.
+    private void onCollapseFrame() {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        boolean collapsing = false;
+        for (int i = 0; i < mPendingDismisses.size(); i++) {
+            if (mPendingDismisses.isDone(i)) {
+                continue;
+            }
+            float fraction = mAnimationTime > 0
+                             ? Math.min(1f, (now - mPendingDismisses.getStartTime(i)) / (float) mAnimationTime)
+                             : 1f;
+            int height = mPendingDismisses.getHeight(i);
+            int collapsed = (int) (height * fraction);
+            mPendingDismisses.setCollapsed(i, collapsed);
+            if (!mLayoutFreeCollapse) {
+                // Shrinking the height triggers a layout on each frame
+                View view = mPendingDismisses.getView(i);
+                ViewGroup.LayoutParams lp = view.getLayoutParams();
+                lp.height = Math.max(1, height - collapsed);
+                view.setLayoutParams(lp);
+            }
+            if (fraction >= 1f) {
+                mPendingDismisses.setDone(i);
+                --mDismissAnimationRefCount;
+            } else {
+                collapsing = true;
+            }
+        }
+        if (mLayoutFreeCollapse) {
+            applyCollapseOffsets();
+        }
+
+        if (mDismissAnimationRefCount == 0) {
+            mCollapseAnimator.cancel();
+            commitPendingDismisses();
+        } else if (!collapsing) {
+            // Waiting for an item still swiping out, performDismiss restarts the animator
+            mCollapseAnimator.cancel();
+        }
+    }
+
+    /**
+     * Lay the list out past its bottom edge by the height being collapsed, so the rows that slide
+     * up into view already exist. A negative bottom padding does it with a single layout.
+     */
+    private void extendCollapse(int height) {
+        if (mCollapseExtent == 0) {
+            mSavedPaddingBottom = mListView.getPaddingBottom();
+        }
+        mCollapseExtent += height;
+        mListView.setPadding(mListView.getPaddingLeft(), mListView.getPaddingTop(),
+                             mListView.getPaddingRight(), mSavedPaddingBottom - mCollapseExtent);
+    }
 
-        final ViewGroup.LayoutParams lp = dismissView.getLayoutParams();
-        final int originalHeight = dismissView.getHeight();
+    private void restoreCollapseExtent() {
+        if (mCollapseExtent == 0) {
+            return;
+        }
+        mCollapseExtent = 0;
+        mListView.setPadding(mListView.getPaddingLeft(), mListView.getPaddingTop(),
+                             mListView.getPaddingRight(), mSavedPaddingBottom);
+    }
 
-        ValueAnimator animator = ValueAnimator.ofInt(originalHeight, 1).setDuration(mAnimationTime);
+    private void applyCollapseOffsets() {
+        // Slide the items below the dismissed ones up by the collapsed height. Translations
+        // don't trigger layout, the list is laid out again when the callback removes the items.
+        // The rows laid out below the bottom edge by extendCollapse are moved too.
+        int firstPosition = mListView.getFirstVisiblePosition();
+        for (int i = mListView.getChildCount() - 1; i >= 0; i--) {
+            ViewHelper.setTranslationY(mListView.getChildAt(i),
+                                       -mPendingDismisses.getCollapsedAbove(firstPosition + i));
+        }
+    }
 
-        animator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                --mDismissAnimationRefCount;
-                if (mDismissAnimationRefCount == 0) {
-                    // No active animations, process all pending dismisses.
-                    // Sort by descending position
-                    Collections.sort(mPendingDismisses);
+    private void commitPendingDismisses() {
+        Tracing.beginSection("SuperListview#commitDismisses");
+        try {
+            int[] dismissPositions = positionArray(mPendingDismisses.size());
+            mPendingDismisses.copyPositions(dismissPositions);
+            if (mReflow) {
+                rememberChildrenGeometry(dismissPositions);
+            }
 
-                    int[] dismissPositions = new int[mPendingDismisses.size()];
-                    for (int i = mPendingDismisses.size() - 1; i >= 0; i--) {
-                        dismissPositions[i] = mPendingDismisses.get(i).position;
-                    }
-                    mCallbacks.onDismiss(mListView, dismissPositions);
-
-                    // Reset mDownPosition to avoid MotionEvent.ACTION_UP trying to start a dismiss 
-                    // animation with a stale position
-                    mDownPosition = ListView.INVALID_POSITION;
-
-                    ViewGroup.LayoutParams lp;
-                    for (PendingDismissData pendingDismiss : mPendingDismisses) {
-                        // Reset view presentation
-                        AnimatorProxy.wrap(pendingDismiss.view).setAlpha(1f);
-                        AnimatorProxy.wrap(pendingDismiss.view).setTranslationX(0);
-                        lp = pendingDismiss.view.getLayoutParams();
-                        lp.height = originalHeight;
-                        pendingDismiss.view.setLayoutParams(lp);
-                    }
+            restoreCollapseExtent();
+            // No active animations, process all pending dismisses, already sorted by descending position
+            mCallbacks.onDismiss(mListView, dismissPositions);
 
-                    // Send a cancel event
-                    long time = SystemClock.uptimeMillis();
-                    MotionEvent cancelEvent = MotionEvent.obtain(time, time,
-                                                                 MotionEvent.ACTION_CANCEL, 0, 0, 0);
-                    mListView.dispatchTouchEvent(cancelEvent);
+            // Reset mDownPosition to avoid MotionEvent.ACTION_UP trying to start a dismiss
+            // animation with a stale position
+            mDownPosition = ListView.INVALID_POSITION;
 
-                    mPendingDismisses.clear();
+            if (mLayoutFreeCollapse && !mReflow) {
+                for (int i = mListView.getChildCount() - 1; i >= 0; i--) {
+                    ViewHelper.setTranslationY(mListView.getChildAt(i), 0);
                 }
             }
-        });
-
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator valueAnimator) {
-                lp.height = (Integer) valueAnimator.getAnimatedValue();
-                dismissView.setLayoutParams(lp);
+            ViewGroup.LayoutParams lp;
+            for (int i = 0; i < mPendingDismisses.size(); i++) {
+                // Reset view presentation
+                View view = mPendingDismisses.getView(i);
+                ViewHelper.setAlpha(view, 1f);
+                ViewHelper.setTranslationX(view, 0);
+                if (!mLayoutFreeCollapse && !mReflow) {
+                    lp = view.getLayoutParams();
+                    lp.height = mPendingDismisses.getHeight(i);
+                    view.setLayoutParams(lp);
+                }
             }
-        });
 
-        mPendingDismisses.add(new PendingDismissData(dismissPosition, dismissView));
-        animator.start();
+            // Send a cancel event
+            long time = SystemClock.uptimeMillis();
+            MotionEvent cancelEvent = MotionEvent.obtain(time, time,
+                                                         MotionEvent.ACTION_CANCEL, 0, 0, 0);
+            mListView.dispatchTouchEvent(cancelEvent);
+            cancelEvent.recycle();
+
+            mPendingDismisses.clear();
+        } finally {
+            Tracing.endSection();
+        }
     }
+
+    private int[] positionArray(int size) {
+        if (size >= mPositionArrays.length) {
+            int[][] arrays = new int[size + 1][];
+            System.arraycopy(mPositionArrays, 0, arrays, 0, mPositionArrays.length);
+            mPositionArrays = arrays;
+        }
+        if (mPositionArrays[size] == null) {
+            mPositionArrays[size] = new int[size];
+        }
+        return mPositionArrays[size];
+    }
+
+    private void rememberChildrenGeometry(int[] dismissPositions) {
+        int childCount = mListView.getChildCount();
+        if (mReflowLefts.length < childCount) {
+            mReflowLefts = new int[childCount];
+            mReflowTops = new int[childCount];
+        }
+        for (int i = 0; i < childCount; i++) {
+            View child = mListView.getChildAt(i);
+            mReflowLefts[i] = child.getLeft();
+            mReflowTops[i] = child.getTop();
+        }
+        mReflowFirstPosition = mListView.getFirstVisiblePosition();
+        mReflowChildCount = childCount;
+        // The callback may get the same array again before the next draw
+        if (mReflowPositions.length < dismissPositions.length) {
+            mReflowPositions = new int[dismissPositions.length];
+        }
+        System.arraycopy(dismissPositions, 0, mReflowPositions, 0, dismissPositions.length);
+        mReflowPositionCount = dismissPositions.length;
+        // The callback changes the adapter, animate once the new layout is done
+        mListView.getViewTreeObserver().addOnPreDrawListener(mReflowListener);
+    }
+
+    private final ViewTreeObserver.OnPreDrawListener mReflowListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            mListView.getViewTreeObserver().removeOnPreDrawListener(this);
+            int firstPosition = mListView.getFirstVisiblePosition();
+            for (int i = mListView.getChildCount() - 1; i >= 0; i--) {
+                View child = mListView.getChildAt(i);
+                // Position of the item before the dismissed ones were removed
+                int oldPosition = firstPosition + i;
+                for (int j = mReflowPositionCount - 1; j >= 0; j--) {
+                    if (mReflowPositions[j] <= oldPosition) {
+                        oldPosition++;
+                    }
+                }
+                int oldIndex = oldPosition - mReflowFirstPosition;
+                if (oldIndex >= 0 && oldIndex < mReflowChildCount) {
+                    int deltaX = mReflowLefts[oldIndex] - child.getLeft();
+                    int deltaY = mReflowTops[oldIndex] - child.getTop();
+                    if (deltaX != 0 || deltaY != 0) {
+                        ViewHelper.setTranslationX(child, deltaX);
+                        ViewHelper.setTranslationY(child, deltaY);
+                        animate(child).translationX(0).translationY(0).setDuration(mAnimationTime).setListener(null);
+                    }
+                } else {
+                    // Wasn't on screen before, fade it in
+                    ViewHelper.setAlpha(child, 0f);
+                    animate(child).alpha(1).setDuration(mAnimationTime).setListener(null);
+                }
+            }
+            mReflowPositionCount = 0;
+            return true;
+        }
+    };
 }
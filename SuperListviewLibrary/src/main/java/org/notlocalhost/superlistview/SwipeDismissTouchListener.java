@@ -78,6 +78,7 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
     private int mSwipingSlop;
     private Object mToken;
     private VelocityTracker mVelocityTracker;
+    private boolean mTracking;
     private float mTranslationX;
 
     /**
@@ -136,35 +137,30 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
                 mDownX = motionEvent.getRawX();
                 mDownY = motionEvent.getRawY();
                 if (mCallbacks.canDismiss(mToken)) {
-                    mVelocityTracker = VelocityTracker.obtain();
+                    // The tracker is kept for the next gestures
+                    if (mVelocityTracker == null) {
+                        mVelocityTracker = VelocityTracker.obtain();
+                    } else {
+                        mVelocityTracker.clear();
+                    }
                     mVelocityTracker.addMovement(motionEvent);
+                    mTracking = true;
                 }
                 return false;
             }
 
             case MotionEvent.ACTION_UP: {
-                if (mVelocityTracker == null) {
+                if (!mTracking) {
                     break;
                 }
 
                 float deltaX = motionEvent.getRawX() - mDownX;
                 mVelocityTracker.addMovement(motionEvent);
                 mVelocityTracker.computeCurrentVelocity(1000);
-                float velocityX = mVelocityTracker.getXVelocity();
-                float absVelocityX = Math.abs(velocityX);
-                float absVelocityY = Math.abs(mVelocityTracker.getYVelocity());
-                boolean dismiss = false;
-                boolean dismissRight = false;
-                if (Math.abs(deltaX) > mViewWidth / 2 && mSwiping) {
-                    dismiss = true;
-                    dismissRight = deltaX > 0;
-                } else if (mMinFlingVelocity <= absVelocityX && absVelocityX <= mMaxFlingVelocity
-                        && absVelocityY < absVelocityX
-                        && absVelocityY < absVelocityX && mSwiping) {
-                    // dismiss only if flinging in the same direction as dragging
-                    dismiss = (velocityX < 0) == (deltaX < 0);
-                    dismissRight = mVelocityTracker.getXVelocity() > 0;
-                }
+                int decision = SwipeDecision.decide(deltaX, mVelocityTracker.getXVelocity(), mVelocityTracker.getYVelocity(),
+                        mViewWidth, mMinFlingVelocity, mMaxFlingVelocity, mSwiping);
+                boolean dismiss = decision != SwipeDecision.DISMISS_NONE;
+                boolean dismissRight = decision == SwipeDecision.DISMISS_RIGHT;
                 if (dismiss) {
                     // dismiss
                     mView.animate()
@@ -185,8 +181,7 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
                             .setDuration(mAnimationTime)
                             .setListener(null);
                 }
-                mVelocityTracker.recycle();
-                mVelocityTracker = null;
+                mTracking = false;
                 mTranslationX = 0;
                 mDownX = 0;
                 mDownY = 0;
@@ -195,7 +190,7 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
             }
 
             case MotionEvent.ACTION_CANCEL: {
-                if (mVelocityTracker == null) {
+                if (!mTracking) {
                     break;
                 }
 
@@ -204,8 +199,7 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
                         .alpha(1)
                         .setDuration(mAnimationTime)
                         .setListener(null);
-                mVelocityTracker.recycle();
-                mVelocityTracker = null;
+                mTracking = false;
                 mTranslationX = 0;
                 mDownX = 0;
                 mDownY = 0;
@@ -214,33 +208,32 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
             }
 
             case MotionEvent.ACTION_MOVE: {
-                if (mVelocityTracker == null) {
+                if (!mTracking) {
                     break;
                 }
 
                 mVelocityTracker.addMovement(motionEvent);
                 float deltaX = motionEvent.getRawX() - mDownX;
                 float deltaY = motionEvent.getRawY() - mDownY;
-                if (Math.abs(deltaX) > mSlop && Math.abs(deltaY) < Math.abs(deltaX) / 2) {
+                if (SwipeDecision.isSwipe(deltaX, deltaY, mSlop)) {
                     mSwiping = true;
                     mSwipingSlop = (deltaX > 0 ? mSlop : -mSlop);
                     mView.getParent().requestDisallowInterceptTouchEvent(true);
 
-                    // Cancel listview's touch
-                    MotionEvent cancelEvent = MotionEvent.obtain(motionEvent);
-                    cancelEvent.setAction(MotionEvent.ACTION_CANCEL |
+                    // Cancel listview's touch, reusing the event instead of obtaining a copy
+                    int action = motionEvent.getAction();
+                    motionEvent.setAction(MotionEvent.ACTION_CANCEL |
                             (motionEvent.getActionIndex() <<
                                     MotionEvent.ACTION_POINTER_INDEX_SHIFT));
-                    mView.onTouchEvent(cancelEvent);
-                    cancelEvent.recycle();
+                    mView.onTouchEvent(motionEvent);
+                    motionEvent.setAction(action);
                 }
 
                 if (mSwiping) {
                     mTranslationX = deltaX;
                     mView.setTranslationX(deltaX - mSwipingSlop);
                     // TODO: use an ease-out interpolator or such
-                    mView.setAlpha(Math.max(0f, Math.min(1f,
-                            1f - 2f * Math.abs(deltaX) / mViewWidth)));
+                    mView.setAlpha(SwipeDecision.swipeAlpha(deltaX, mViewWidth));
                     return true;
                 }
                 break;
@@ -249,8 +242,17 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
         return false;
     }
 
-    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     private void performDismiss() {
+        Tracing.beginSection("SuperListview#performDismiss");
+        try {
+            animateDismiss();
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void animateDismiss() {
         // Animate the dismissed view to zero-height and then fire the dismiss callback.
         // This triggers layout on each animation frame; in the future we may want to do something
         // smarter and more performant.
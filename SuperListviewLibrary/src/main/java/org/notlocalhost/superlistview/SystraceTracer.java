@@ -0,0 +1,25 @@
+package org.notlocalhost.superlistview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Sends the sections to systrace. Does nothing before API 18
+ */
+public class SystraceTracer implements Tracer {
+
+    private static final boolean ENABLED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public void beginSection(String name) {
+        if (ENABLED) Trace.beginSection(name);
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public void endSection() {
+        if (ENABLED) Trace.endSection();
+    }
+}
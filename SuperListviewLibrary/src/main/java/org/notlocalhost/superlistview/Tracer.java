@@ -0,0 +1,23 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Receives the named sections of the library's expensive operations, see {@link Tracing}.
+ * Sections are nested, each beginSection is matched by an endSection on the same thread.
+ */
+public interface Tracer {
+
+    /** Drops every section, the default */
+    public static final Tracer NONE = new Tracer() {
+        @Override
+        public void beginSection(String name) {
+        }
+
+        @Override
+        public void endSection() {
+        }
+    };
+
+    public void beginSection(String name);
+
+    public void endSection();
+}
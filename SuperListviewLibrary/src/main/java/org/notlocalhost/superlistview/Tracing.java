@@ -0,0 +1,31 @@
+package org.notlocalhost.superlistview;
+
+/**
+ * Tracer used by every list of the process. Sections are named "SuperListview#operation".
+ */
+public final class Tracing {
+
+    private static volatile Tracer sTracer = Tracer.NONE;
+
+    private Tracing() {
+    }
+
+    /**
+     * @param tracer The tracer, null for {@link Tracer#NONE}
+     */
+    public static void setTracer(Tracer tracer) {
+        sTracer = tracer != null ? tracer : Tracer.NONE;
+    }
+
+    public static Tracer getTracer() {
+        return sTracer;
+    }
+
+    static void beginSection(String name) {
+        sTracer.beginSection(name);
+    }
+
+    static void endSection() {
+        sTracer.endSection();
+    }
+}
@@ -0,0 +1,153 @@
+package org.notlocalhost.superlistview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Inflates rows of a {@link SuperAdapter} on a low priority thread while the list is idle
+ * and hands them to the adapter's {@link RecycledViewPool}, so the first scroll doesn't inflate them.
+ * Everything but the inflation happens on the UI thread.
+ * The rows are inflated with a clone of the list's inflater, see {@link SuperAdapter#getLayoutInflater(ViewGroup)}:
+ * the UI thread's inflater holds a lock while it inflates.
+ */
+class ViewPreInflater {
+
+    private static final String  TAG          = "SuperListview";
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    // Inflater of the row being pre-inflated on this thread
+    private static final ThreadLocal<LayoutInflater> sInflater = new ThreadLocal<LayoutInflater>();
+
+    private final ViewGroup      mParent;
+    private final LayoutInflater mInflater;
+    private final SparseIntArray mCounts = new SparseIntArray();
+    private final Executor       mExecutor = PagingExecutor.getPreInflateExecutor();
+
+    private SuperAdapter<?> mAdapter;
+    private boolean         mRunning;
+    // Bumped on the UI thread to stop the running task
+    private volatile int    mGeneration;
+
+    ViewPreInflater(ViewGroup parent) {
+        mParent = parent;
+        mInflater = LayoutInflater.from(parent.getContext()).cloneInContext(parent.getContext());
+    }
+
+    /**
+     * @return the inflater to use when called from a pre-inflation, null otherwise
+     */
+    static LayoutInflater getThreadInflater() {
+        return sInflater.get();
+    }
+
+    void setCount(int viewType, int count) {
+        mCounts.put(viewType, count);
+    }
+
+    void setAdapter(SuperAdapter<?> adapter) {
+        if (adapter != mAdapter) {
+            cancel();
+            mAdapter = adapter;
+        }
+    }
+
+    /**
+     * Stop inflating, when the list starts scrolling
+     */
+    void cancel() {
+        mGeneration++;
+        mRunning = false;
+    }
+
+    /**
+     * Inflate the rows missing in the pool, in a single background task
+     */
+    void start() {
+        final SuperAdapter<?> adapter = mAdapter;
+        if (mRunning || adapter == null || adapter.getRecycledViewPool() == null) {
+            return;
+        }
+        RecycledViewPool pool = adapter.getRecycledViewPool();
+        final int[] types = new int[mCounts.size()];
+        final int[] missing = new int[types.length];
+        int total = 0;
+        for (int i = 0; i < types.length; i++) {
+            types[i] = mCounts.keyAt(i);
+            missing[i] = Math.max(0, mCounts.valueAt(i) - pool.getRecycledViewCount(types[i]));
+            total += missing[i];
+        }
+        if (total == 0) {
+            return;
+        }
+
+        final int generation = mGeneration;
+        mRunning = true;
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    inflate(adapter, types, missing, generation);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The executor is busy with other lists, try again next time the list is idle
+            mRunning = false;
+        }
+    }
+
+    /**
+     * Called on the background thread
+     */
+    private void inflate(final SuperAdapter<?> adapter, int[] types, int[] missing, final int generation) {
+        sInflater.set(mInflater);
+        try {
+            for (int i = 0; i < types.length; i++) {
+                final int viewType = types[i];
+                try {
+                    for (int j = 0; j < missing[i]; j++) {
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        final View view = adapter.createViewHolder(mParent, viewType).itemView;
+                        sMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (adapter == mAdapter && adapter.getRecycledViewPool() != null) {
+                                    adapter.getRecycledViewPool().putRecycledView(viewType, view);
+                                }
+                            }
+                        });
+                    }
+                } catch (RuntimeException e) {
+                    // Views that need the UI thread to be created can't be pre-inflated, they'll be
+                    // inflated when needed
+                    Log.w(TAG, "Can't pre-inflate view type " + viewType + ", giving up on it", e);
+                    sMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            mCounts.delete(viewType);
+                        }
+                    });
+                }
+            }
+        } finally {
+            sInflater.remove();
+            sMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == mGeneration) {
+                        mRunning = false;
+                    }
+                }
+            });
+        }
+    }
+}